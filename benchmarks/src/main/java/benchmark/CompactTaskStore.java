@@ -0,0 +1,224 @@
+package benchmark;
+
+import data.Priority;
+import data.Status;
+import data.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/*
+ * Measurement fixture for HeapFootprintComparison, not a storage backend: it keeps no ids, history or statistics.
+ * It keeps every task field in primitive columns:
+ * epoch-day dates in int arrays, status and priority ordinals in byte arrays, and names
+ * and descriptions as UTF-8 ranges of one shared byte heap. A task costs about 30 bytes
+ * plus its text instead of a Task object with its LocalDates, Strings and bucket entries.
+ * Task objects are only created when a caller reads one, as a copy of the stored data.
+ */
+class CompactTaskStore {
+    private static final Status[] STATUSES = Status.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final byte FREE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] creationDays = new int[INITIAL_CAPACITY];
+    private int[] deadlineDays = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private byte[] priorities = new byte[INITIAL_CAPACITY];
+    private int[] nameOffsets = new int[INITIAL_CAPACITY];
+    private int[] nameLengths = new int[INITIAL_CAPACITY];
+    private int[] descriptionOffsets = new int[INITIAL_CAPACITY];
+    private int[] descriptionLengths = new int[INITIAL_CAPACITY];
+    private int slotCount;
+
+    // slots of removed tasks, reused by the next inserts
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount;
+
+    private byte[] text = new byte[INITIAL_CAPACITY * 64];
+    private int textSize;
+    // bytes of removed tasks still in the heap, compacted away once they are half of it
+    private int unusedText;
+
+    // slots of each day, highest priority first and in insertion order within a priority
+    private final NavigableMap<Integer, SlotList> days = new TreeMap<>();
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void addTask(Task task) {
+        int slot = allocateSlot();
+        creationDays[slot] = (int) task.getCreationDate().toEpochDay();
+        deadlineDays[slot] = (int) task.getDeadline().toEpochDay();
+        statuses[slot] = (byte) task.getStatus().ordinal();
+        priorities[slot] = (byte) task.getPriority().ordinal();
+
+        byte[] name = task.getName().getBytes(StandardCharsets.UTF_8);
+        nameOffsets[slot] = appendText(name);
+        nameLengths[slot] = name.length;
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        descriptionOffsets[slot] = appendText(description);
+        descriptionLengths[slot] = description.length;
+
+        days.computeIfAbsent(deadlineDays[slot], day -> new SlotList()).insertByPriority(slot);
+        size++;
+    }
+
+    Task getTask(LocalDate date, int index) {
+        return materialize(slotsOf(date).get(index));
+    }
+
+    Task removeTask(LocalDate date, int index) {
+        int day = (int) date.toEpochDay();
+        SlotList slots = slotsOf(date);
+        int slot = slots.remove(index);
+        if (slots.size == 0)
+            days.remove(day);
+
+        Task task = materialize(slot);
+        freeSlot(slot);
+        return task;
+    }
+
+    // read-only views that create a Task only for the element that is read
+    List<Task> findTasksByDate(LocalDate date) {
+        SlotList slots = days.get((int) date.toEpochDay());
+        return slots == null ? null : new DayView(slots);
+    }
+
+    private SlotList slotsOf(LocalDate date) {
+        SlotList slots = days.get((int) date.toEpochDay());
+        if (slots == null)
+            throw new IndexOutOfBoundsException("No tasks for " + date);
+        return slots;
+    }
+
+    private Task materialize(int slot) {
+        return new Task(
+                new String(text, nameOffsets[slot], nameLengths[slot], StandardCharsets.UTF_8),
+                new String(text, descriptionOffsets[slot], descriptionLengths[slot], StandardCharsets.UTF_8),
+                LocalDate.ofEpochDay(creationDays[slot]),
+                LocalDate.ofEpochDay(deadlineDays[slot]),
+                STATUSES[statuses[slot]],
+                PRIORITIES[priorities[slot]]);
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0)
+            return freeSlots[--freeSlotCount];
+
+        if (slotCount == statuses.length)
+            growColumns(slotCount * 2);
+        return slotCount++;
+    }
+
+    private void freeSlot(int slot) {
+        statuses[slot] = FREE;
+        unusedText += nameLengths[slot] + descriptionLengths[slot];
+        size--;
+
+        if (freeSlotCount == freeSlots.length)
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        freeSlots[freeSlotCount++] = slot;
+
+        if (unusedText > textSize / 2)
+            compactText();
+    }
+
+    private void growColumns(int capacity) {
+        creationDays = Arrays.copyOf(creationDays, capacity);
+        deadlineDays = Arrays.copyOf(deadlineDays, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+    }
+
+    private int appendText(byte[] bytes) {
+        if (textSize + bytes.length > text.length)
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textSize + bytes.length));
+
+        int offset = textSize;
+        System.arraycopy(bytes, 0, text, offset, bytes.length);
+        textSize += bytes.length;
+        return offset;
+    }
+
+    // copies the text of live tasks into a new heap, dropping what removed tasks left behind
+    private void compactText() {
+        byte[] oldText = text;
+        text = new byte[Math.max(INITIAL_CAPACITY, textSize - unusedText)];
+        textSize = 0;
+        unusedText = 0;
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (statuses[slot] == FREE)
+                continue;
+
+            int nameOffset = textSize;
+            System.arraycopy(oldText, nameOffsets[slot], text, textSize, nameLengths[slot]);
+            textSize += nameLengths[slot];
+            nameOffsets[slot] = nameOffset;
+
+            int descriptionOffset = textSize;
+            System.arraycopy(oldText, descriptionOffsets[slot], text, textSize, descriptionLengths[slot]);
+            textSize += descriptionLengths[slot];
+            descriptionOffsets[slot] = descriptionOffset;
+        }
+    }
+
+    private class SlotList {
+        private int[] slots = new int[4];
+        private int size;
+
+        // after the last slot of the same or a higher priority, like a stable sort by priority
+        void insertByPriority(int slot) {
+            if (size == slots.length)
+                slots = Arrays.copyOf(slots, size * 2);
+
+            int position = size;
+            while (position > 0 && priorities[slots[position - 1]] < priorities[slot]) {
+                position--;
+            }
+            System.arraycopy(slots, position, slots, position + 1, size - position);
+            slots[position] = slot;
+            size++;
+        }
+
+        int get(int index) {
+            Objects.checkIndex(index, size);
+            return slots[index];
+        }
+
+        int remove(int index) {
+            int slot = get(index);
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            size--;
+            return slot;
+        }
+    }
+
+    private class DayView extends AbstractList<Task> {
+        private final SlotList slots;
+
+        DayView(SlotList slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public Task get(int index) {
+            return materialize(slots.get(index));
+        }
+
+        @Override
+        public int size() {
+            return slots.size;
+        }
+    }
+}
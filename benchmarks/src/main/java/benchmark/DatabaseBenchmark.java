@@ -0,0 +1,71 @@
+package benchmark;
+
+import data.Database;
+import data.Priority;
+import data.Status;
+import data.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// inserting into and removing from a day that already holds dayTasks tasks, and loading a whole day task by task
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DatabaseBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int dayTasks;
+
+    private final LocalDate day = LocalDate.now().plusDays(1);
+    private Database database;
+    private Task urgentTask;
+    private Task middleTask;
+    private List<Task> tasksOfDay;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TaskGenerator generator = TaskGenerator.uniform(42, 30);
+        database = new Database();
+        for (int i = 0; i < dayTasks; i++) {
+            database.addTask(generator.nextTask(day));
+        }
+
+        middleTask = database.getTasks().get(day).get(dayTasks / 2);
+
+        urgentTask = new Task("urgent", "added and taken again", LocalDate.now(), day, Status.TO_DO, Priority.URGENT);
+        tasksOfDay = new ArrayList<>(dayTasks);
+        for (int i = 0; i < dayTasks; i++) {
+            tasksOfDay.add(generator.nextTask(day));
+        }
+    }
+
+    // the oldest urgent task is taken again, so the day keeps its size
+    @Benchmark
+    public Task addTaskToDay() {
+        database.addTask(new Task(urgentTask));
+        return database.removeFirstTask(day);
+    }
+
+    // found by its id and unlinked, then added again at the end of its priority
+    @Benchmark
+    public boolean removeTaskFromDay() {
+        boolean removed = database.removeTask(middleTask);
+        database.addTask(middleTask);
+        return removed;
+    }
+
+    @Benchmark
+    public Database loadDay() {
+        Database loaded = new Database();
+        for (Task task : tasksOfDay) {
+            loaded.addTask(task);
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import data.Task;
+import org.openjdk.jmh.annotations.*;
+import service.TaskService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// the tasks of next week read from a range view, against filtering every date of the full map
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DateRangeBenchmark {
+    @Param({"365", "3650"})
+    private int deadlineSpreadDays;
+
+    private final LocalDate from = LocalDate.now().plusDays(7);
+    private final LocalDate to = from.plusDays(6);
+    private TaskService taskService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskService = new TaskService(TaskGenerator.uniform(42, deadlineSpreadDays).database(100000, 0));
+    }
+
+    @Benchmark
+    public long tasksBetween() {
+        return taskService.streamTasksBetween(from, to).count();
+    }
+
+    @Benchmark
+    public long tasksBetweenByScan() {
+        long count = 0;
+        for (Map.Entry<LocalDate, List<Task>> day : taskService.getTasks().entrySet()) {
+            if (!day.getKey().isBefore(from) && !day.getKey().isAfter(to))
+                count += day.getValue().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public Map<LocalDate, Integer> countTasksPerDay() {
+        return taskService.countTasksPerDay(from, to);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import data.Database;
+import io.file.CsvFileManager;
+import io.file.FileManager;
+import io.file.MappedFileManager;
+import io.file.SerializableFileManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// whole database reads and saves per second, on a generated data set with a tenth as much history
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileManagerBenchmark {
+    @Param({"CSV", "SERIALIZABLE", "MAPPED"})
+    private String format;
+
+    @Param({"10000", "100000"})
+    private int taskCount;
+
+    private Path directory;
+    private FileManager fileManager;
+    private Database database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("todolist-benchmark");
+        String file = directory.resolve("database").toString();
+
+        fileManager = switch (format) {
+            case "CSV" -> new CsvFileManager(file);
+            case "SERIALIZABLE" -> new SerializableFileManager(file);
+            case "MAPPED" -> new MappedFileManager(file);
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+
+        database = TaskGenerator.uniform(42, 365).database(taskCount, taskCount / 10);
+        fileManager.saveToFile(database);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    // the mapped file decodes a day on first use, so every day is loaded to compare whole reads
+    @Benchmark
+    public Database read() {
+        Database database = fileManager.readFromFile();
+        database.loadAllDays();
+        return database;
+    }
+
+    @Benchmark
+    public void save() {
+        fileManager.saveToFile(database);
+    }
+}
@@ -0,0 +1,42 @@
+package benchmark;
+
+import data.Database;
+import data.Task;
+import org.openjdk.jmh.annotations.*;
+import service.TaskService;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FindTaskByNameBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int taskCount;
+
+    // a short, a common and a rare query
+    @Param({"fi", "report", "budget trip"})
+    private String query;
+
+    private TaskService taskService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Database database = TaskGenerator.uniform(42, 365).database(taskCount, 0);
+        taskService = new TaskService(database);
+    }
+
+    @Benchmark
+    public Collection<Task> findTaskByName() {
+        return taskService.findTaskByName(query);
+    }
+
+    @Benchmark
+    public Collection<Task> findTaskByNameRanked() {
+        return taskService.findTaskByNameRanked(query);
+    }
+}
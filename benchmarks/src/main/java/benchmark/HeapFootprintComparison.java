@@ -0,0 +1,44 @@
+package benchmark;
+
+import data.Database;
+
+// retained heap of the same generated tasks in a Database and in a CompactTaskStore
+// usage: java -cp target/benchmarks.jar benchmark.HeapFootprintComparison [task count]
+public class HeapFootprintComparison {
+    private static final int DEFAULT_TASK_COUNT = 1_000_000;
+    private static final long SEED = 42;
+    private static final int DEADLINE_SPREAD_DAYS = 365;
+
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASK_COUNT;
+
+        long before = usedHeap();
+        Database database = TaskGenerator.uniform(SEED, DEADLINE_SPREAD_DAYS).database(taskCount, 0);
+        long databaseBytes = usedHeap() - before;
+        report("Database", databaseBytes, taskCount);
+        database = null;
+
+        before = usedHeap();
+        CompactTaskStore store = new CompactTaskStore();
+        TaskGenerator generator = TaskGenerator.uniform(SEED, DEADLINE_SPREAD_DAYS);
+        for (int i = 0; i < taskCount; i++) {
+            store.addTask(generator.nextTask());
+        }
+        long storeBytes = usedHeap() - before;
+        report("CompactTaskStore", storeBytes, store.size());
+
+        System.out.printf("CompactTaskStore uses %.1f%% of the Database heap.%n", 100.0 * storeBytes / databaseBytes);
+    }
+
+    private static void report(String layout, long bytes, int taskCount) {
+        System.out.printf("%-17s %,15d bytes %,8d bytes per task%n", layout, bytes, bytes / taskCount);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
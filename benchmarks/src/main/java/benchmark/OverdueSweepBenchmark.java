@@ -0,0 +1,43 @@
+package benchmark;
+
+import data.Database;
+import org.openjdk.jmh.annotations.*;
+import service.TaskService;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// the sweep that replaced TaskController.checkDatabaseForFailedTasksAndFailThem
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OverdueSweepBenchmark {
+    @Param({"10000", "100000"})
+    private int taskCount;
+
+    @Param({"1", "10"})
+    private int expiredPercent;
+
+    private final LocalDate today = LocalDate.now();
+    private TaskService taskService;
+
+    // every invocation needs a fresh database, the sweep removes what it fails
+    @Setup(Level.Invocation)
+    public void setUp() {
+        TaskGenerator generator = TaskGenerator.uniform(42, 365);
+        Database database = generator.database(taskCount, 0);
+        int expiredTasks = taskCount * expiredPercent / 100;
+        for (int i = 0; i < expiredTasks; i++) {
+            database.addTask(generator.nextTask(today.minusDays(1 + i % 30)));
+        }
+        taskService = new TaskService(database);
+    }
+
+    @Benchmark
+    public int failOverdueTasks() {
+        return taskService.failOverdueTasks(today);
+    }
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import data.Database;
+import data.Priority;
+import data.Status;
+import data.Task;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// deterministic synthetic tasks, skewed towards some priorities and towards near deadlines
+public class TaskGenerator {
+    private static final String[] WORDS = {
+            "call", "buy", "plan", "review", "clean", "write", "send", "fix", "prepare", "book",
+            "report", "groceries", "invoice", "garage", "meeting", "dentist", "birthday", "budget", "trip", "slides"
+    };
+
+    private final Random random;
+    private final double[] priorityWeights;
+    private final int deadlineSpreadDays;
+    private final double deadlineSkew;
+    private final LocalDate today = LocalDate.now();
+
+    /*
+     * priorityWeights - relative weight of LOW, MEDIUM, HIGH and URGENT
+     * deadlineSpreadDays - deadlines fall between today and this many days ahead
+     * deadlineSkew - 1 spreads deadlines evenly, higher values crowd them towards today
+     */
+    public TaskGenerator(long seed, double[] priorityWeights, int deadlineSpreadDays, double deadlineSkew) {
+        if (priorityWeights.length != Priority.values().length)
+            throw new IllegalArgumentException("One weight per priority expected.");
+
+        this.random = new Random(seed);
+        this.priorityWeights = cumulative(priorityWeights);
+        this.deadlineSpreadDays = deadlineSpreadDays;
+        this.deadlineSkew = deadlineSkew;
+    }
+
+    public static TaskGenerator uniform(long seed, int deadlineSpreadDays) {
+        return new TaskGenerator(seed, new double[]{1, 1, 1, 1}, deadlineSpreadDays, 1);
+    }
+
+    public Task nextTask() {
+        return nextTask(nextDeadline());
+    }
+
+    public Task nextTask(LocalDate deadline) {
+        String name = word() + " " + word() + " " + random.nextInt(1000);
+        String description = word() + " " + word() + " " + word() + " " + word();
+        return new Task(name, description, today, deadline, Status.TO_DO, nextPriority());
+    }
+
+    // tasks that already ended, for the history section
+    public Task nextHistoryTask() {
+        Task task = nextTask(today.minusDays(1 + random.nextInt(deadlineSpreadDays)));
+        task.setStatus(random.nextBoolean() ? Status.DONE : Status.FAILED);
+        return task;
+    }
+
+    public List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(nextTask());
+        }
+        return tasks;
+    }
+
+    public Database database(int taskCount, int historyCount) {
+        Database database = new Database();
+        for (int i = 0; i < taskCount; i++) {
+            database.addTask(nextTask());
+        }
+        for (int i = 0; i < historyCount; i++) {
+            database.addToHistory(nextHistoryTask());
+        }
+        database.setTasksCreated(taskCount + historyCount);
+        return database;
+    }
+
+    private LocalDate nextDeadline() {
+        double position = Math.pow(random.nextDouble(), deadlineSkew);
+        return today.plusDays((long) (position * deadlineSpreadDays));
+    }
+
+    private Priority nextPriority() {
+        double value = random.nextDouble() * priorityWeights[priorityWeights.length - 1];
+        for (int i = 0; i < priorityWeights.length; i++) {
+            if (value < priorityWeights[i])
+                return Priority.values()[i];
+        }
+        return Priority.values()[priorityWeights.length - 1];
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+}
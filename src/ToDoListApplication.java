@@ -1,9 +1,101 @@
+import batch.BatchRunner;
 import controller.TaskController;
+import io.file.FileManagerFactory;
+import io.file.FileManagerType;
+import replication.AckMode;
+import replication.ReplicationAddress;
+import replication.ReplicationFollower;
+import server.TaskServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
 
 class ToDoListApplication {
+    private static final String SERVER_FLAG = "--server";
+    private static final String BATCH_FLAG = "--batch";
+    private static final String FOLLOW_FLAG = "--follow";
+
     public static void main(String[] args) {
         System.out.println("ToDoList Application v1.0\n");
+
+        if (args.length > 0 && args[0].equals(SERVER_FLAG)) {
+            startServer(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals(FOLLOW_FLAG)) {
+            startFollower(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals(BATCH_FLAG)) {
+            runBatch(args);
+            return;
+        }
+
         TaskController controller = new TaskController();
         controller.mainLoop();
     }
+
+    // --server [[host:]port] [file manager number] [replication address] [sync|async]
+    private static void startServer(String[] args) {
+        try {
+            InetSocketAddress address = TaskServer.parseAddress(args.length > 1
+                    ? args[1] : String.valueOf(TaskServer.DEFAULT_PORT));
+            FileManagerType type = args.length > 2
+                    ? FileManagerType.createFromInt(Integer.parseInt(args[2]))
+                    : FileManagerType.CSV;
+
+            TaskServer server = new TaskServer(FileManagerFactory.getFileManager(type));
+            if (args.length > 3)
+                server.replicate(ReplicationAddress.parse(args[3]),
+                        args.length > 4 ? AckMode.createFromString(args[4]) : AckMode.ASYNC);
+            server.start(address);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: " + SERVER_FLAG + " [[host:]port] [file manager number] [replication address] [sync|async]");
+        } catch (RuntimeException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // --follow <primary replication address> [[host:]port] [file manager number]
+    private static void startFollower(String[] args) {
+        try {
+            if (args.length < 2)
+                throw new NumberFormatException();
+            InetSocketAddress address = TaskServer.parseAddress(args.length > 2
+                    ? args[2] : String.valueOf(TaskServer.DEFAULT_PORT));
+            FileManagerType type = args.length > 3
+                    ? FileManagerType.createFromInt(Integer.parseInt(args[3]))
+                    : FileManagerType.CSV;
+
+            ReplicationFollower follower = new ReplicationFollower(ReplicationAddress.parse(args[1]), System.out::println);
+            follower.connect();
+            System.out.println("Data from the primary loaded successfully.");
+
+            TaskServer server = new TaskServer(FileManagerFactory.getFileManager(type), follower);
+            server.start(address);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: " + FOLLOW_FLAG + " <primary replication address> [[host:]port] [file manager number]");
+        } catch (RuntimeException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // --batch [script file, - for standard input] [file manager number]
+    private static void runBatch(String[] args) {
+        try {
+            String script = args.length > 1 ? args[1] : BatchRunner.STANDARD_INPUT;
+            FileManagerType type = args.length > 2
+                    ? FileManagerType.createFromInt(Integer.parseInt(args[2]))
+                    : FileManagerType.CSV;
+
+            BatchRunner runner = new BatchRunner(FileManagerFactory.getFileManager(type));
+            System.out.print(runner.run(script));
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: " + BATCH_FLAG + " [script file, - for standard input] [file manager number]");
+        } catch (RuntimeException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package batch;
+
+import data.Database;
+import data.Priority;
+import data.Task;
+import exception.DeadlineDateMustBeFuture;
+import exception.FileReadException;
+import exception.FileWriteException;
+import exception.InvalidPriorityException;
+import exception.InvalidTaskTextException;
+import exception.TaskNameCantBeEmptyOrNull;
+import exception.TaskNotFoundException;
+import io.file.FileManager;
+import io.file.SegmentedHistoryArchive;
+import io.file.TimedFileManager;
+import service.TaskListener;
+import service.TaskService;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Headless mode that applies a script of commands, one per line, e.g. add;name;description;2026-11-01;HIGH
+ * Consecutive adds are collected and added in batches, which takes one lock per date and one journal write per
+ * batch; any other command first adds the collected tasks, so commands apply in script order. A failing
+ * command is reported with its line and skipped. Nothing is printed per command, and the database is saved
+ * once at the end.
+ */
+public class BatchRunner {
+    public static final String STANDARD_INPUT = "-";
+    private static final int BATCH_SIZE = 4096;
+
+    private final FileManager fileManager;
+    private final TaskService taskService;
+    private final List<Task> pendingTasks = new ArrayList<>();
+    private BatchSummary summary;
+
+    public BatchRunner(FileManager selectedFileManager) {
+        this.fileManager = new TimedFileManager(selectedFileManager);
+
+        Database database;
+        try {
+            database = fileManager.readFromFile();
+            System.out.println("Data from file loaded successfully.");
+        } catch (FileReadException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Initializes new database.");
+            database = new Database();
+        }
+
+        taskService = new TaskService(database);
+        // history beyond the recent tail is kept in compressed segments on disk
+        taskService.getDatabase().setHistoryArchive(SegmentedHistoryArchive.of(fileManager));
+        if (selectedFileManager instanceof TaskListener listener)
+            taskService.addListener(listener);
+    }
+
+    // a script file, or standard input for STANDARD_INPUT
+    public BatchSummary run(String script) throws IOException {
+        if (script.equals(STANDARD_INPUT))
+            return run(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        try (Reader reader = Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            return run(reader);
+        } catch (NoSuchFileException e) {
+            throw new FileReadException("File " + script + " not found.");
+        }
+    }
+
+    public BatchSummary run(Reader script) throws IOException {
+        long start = System.nanoTime();
+        summary = new BatchSummary();
+        summary.setExpiredTasks(taskService.failOverdueTasks(LocalDate.now()));
+
+        CommandTokenizer tokenizer = new CommandTokenizer(script);
+        while (tokenizer.nextCommand()) {
+            Command command = Command.find(tokenizer);
+            try {
+                if (command == null)
+                    throw new IllegalArgumentException("Unknown command.");
+                apply(command, tokenizer);
+            } catch (IllegalArgumentException e) {
+                // a malformed line
+                String usage = command == null ? "" : " Usage: " + command.getKeyword() + ";" + command.getFields();
+                summary.failed(tokenizer.getLine(), e.getMessage() + usage);
+            } catch (TaskNameCantBeEmptyOrNull | InvalidTaskTextException | InvalidPriorityException |
+                     DeadlineDateMustBeFuture | TaskNotFoundException | FileWriteException e) {
+                summary.failed(tokenizer.getLine(), e.getMessage());
+            }
+        }
+        addPendingTasks();
+        taskService.save(fileManager::saveToFile);
+
+        summary.setDuration(Duration.ofNanos(System.nanoTime() - start));
+        return summary;
+    }
+
+    private void apply(Command command, CommandTokenizer tokenizer) throws IOException {
+        if (command == Command.ADD) {
+            add(tokenizer);
+            return;
+        }
+
+        addPendingTasks();
+        switch (command) {
+            case EDIT -> edit(tokenizer);
+            case END -> {
+                Task task = readStoredTask(tokenizer);
+                tokenizer.endLine();
+                if (taskService.endTask(task) == null)
+                    throw removed(task);
+            }
+            case FAIL -> {
+                Task task = readStoredTask(tokenizer);
+                tokenizer.endLine();
+                if (!taskService.failTask(task))
+                    throw removed(task);
+            }
+            case REMOVE -> {
+                Task task = readStoredTask(tokenizer);
+                tokenizer.endLine();
+                if (!taskService.removeTask(task))
+                    throw removed(task);
+            }
+            case END_TOP -> {
+                LocalDate date = tokenizer.readOptionalDate();
+                tokenizer.endLine();
+                if (taskService.endAndReturnFirstTask(date == null ? LocalDate.now() : date) == null)
+                    throw new TaskNotFoundException("The task list is empty.");
+            }
+            case SAVE -> {
+                tokenizer.endLine();
+                taskService.save(fileManager::saveToFile);
+            }
+            case CLEAR_HISTORY -> {
+                tokenizer.endLine();
+                taskService.clearHistory();
+            }
+            case CLEAR_STATISTICS -> {
+                tokenizer.endLine();
+                taskService.clearStatistics();
+            }
+        }
+        summary.applied(command, 1);
+    }
+
+    private void add(CommandTokenizer tokenizer) throws IOException {
+        String name = tokenizer.readString();
+        String description = tokenizer.readString();
+        LocalDate deadline = readDeadline(tokenizer.readDate());
+        Priority priority = tokenizer.readPriority();
+        tokenizer.endLine();
+
+        pendingTasks.add(new Task(name, description, deadline, priority));
+        if (pendingTasks.size() == BATCH_SIZE)
+            addPendingTasks();
+    }
+
+    private void addPendingTasks() {
+        if (pendingTasks.isEmpty())
+            return;
+
+        List<Task> tasks = List.copyOf(pendingTasks);
+        pendingTasks.clear();
+        taskService.addTasks(tasks);
+        summary.applied(Command.ADD, tasks.size());
+    }
+
+    // like the console edit, the task is replaced by an edited copy that keeps its id
+    private void edit(CommandTokenizer tokenizer) throws IOException {
+        Task oldTask = readStoredTask(tokenizer);
+        Task editedTask = new Task(oldTask);
+
+        String name = tokenizer.readOptionalString();
+        String description = tokenizer.readOptionalString();
+        LocalDate deadline = tokenizer.readOptionalDate();
+        Priority priority = tokenizer.readOptionalPriority();
+        tokenizer.endLine();
+
+        if (name != null)
+            editedTask.setName(name);
+        if (description != null)
+            editedTask.setDescription(description);
+        if (deadline != null)
+            editedTask.setDeadline(readDeadline(deadline));
+        if (priority != null)
+            editedTask.setPriority(priority);
+
+        if (!taskService.replaceTask(oldTask, editedTask))
+            throw removed(oldTask);
+    }
+
+    private Task readStoredTask(CommandTokenizer tokenizer) throws IOException {
+        long id = tokenizer.readLong();
+        Task task = taskService.getTaskById(id);
+        if (task == null)
+            throw new TaskNotFoundException("No task with id " + id + ".");
+        return task;
+    }
+
+    private static TaskNotFoundException removed(Task task) {
+        return new TaskNotFoundException("Task " + task.getId() + " was already removed.");
+    }
+
+    private static LocalDate readDeadline(LocalDate deadline) {
+        if (deadline.isBefore(LocalDate.now()))
+            throw new DeadlineDateMustBeFuture("Deadline date must be in the future.");
+        return deadline;
+    }
+}
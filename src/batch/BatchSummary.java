@@ -0,0 +1,74 @@
+package batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// how many commands of each kind a script applied, which lines failed and how fast it ran
+public class BatchSummary {
+    private static final int ERRORS_KEPT = 10;
+
+    private final Map<Command, Integer> applied = new EnumMap<>(Command.class);
+    private final List<String> errors = new ArrayList<>();
+    private int errorCount;
+    private int expiredTasks;
+    private Duration duration = Duration.ZERO;
+
+    void applied(Command command, int count) {
+        applied.merge(command, count, Integer::sum);
+    }
+
+    // only the first errors are kept for the report, the rest are counted
+    void failed(long line, String message) {
+        if (errors.size() < ERRORS_KEPT)
+            errors.add("Line " + line + ": " + message);
+        errorCount++;
+    }
+
+    void setExpiredTasks(int expiredTasks) {
+        this.expiredTasks = expiredTasks;
+    }
+
+    void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public int getCommands() {
+        return applied.values().stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public double getCommandsPerSecond() {
+        long nanos = Math.max(1, duration.toNanos());
+        return getCommands() * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format("Applied %d commands in %d ms (%.0f commands/s)",
+                getCommands(), duration.toMillis(), getCommandsPerSecond()));
+        applied.forEach((command, count) -> builder.append(", ").append(command.getKeyword()).append(' ').append(count));
+        builder.append('\n');
+
+        if (expiredTasks > 0)
+            builder.append(expiredTasks).append(" task(s) passed their deadline and were marked as failed.\n");
+        if (errorCount > 0) {
+            builder.append(errorCount).append(" command(s) failed:\n");
+            errors.forEach(error -> builder.append(error).append('\n'));
+            if (errorCount > errors.size())
+                builder.append("... and ").append(errorCount - errors.size()).append(" more\n");
+        }
+        return builder.toString();
+    }
+}
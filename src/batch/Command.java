@@ -0,0 +1,41 @@
+package batch;
+
+// commands of a batch script with the fields that follow the keyword, empty edit fields keep the old value
+enum Command {
+    ADD("add", "name;description;deadline;priority"),
+    EDIT("edit", "id;name;description;deadline;priority"),
+    END("end", "id"),
+    FAIL("fail", "id"),
+    REMOVE("remove", "id"),
+    END_TOP("top", "[date]"),
+    SAVE("save", ""),
+    CLEAR_HISTORY("clear-history", ""),
+    CLEAR_STATISTICS("clear-statistics", "");
+
+    private static final Command[] COMMANDS = values();
+
+    private final String keyword;
+    private final String fields;
+
+    Command(String keyword, String fields) {
+        this.keyword = keyword;
+        this.fields = fields;
+    }
+
+    String getKeyword() {
+        return keyword;
+    }
+
+    String getFields() {
+        return fields;
+    }
+
+    // the command whose keyword the tokenizer just read, null if there is none
+    static Command find(CommandTokenizer tokenizer) {
+        for (Command command : COMMANDS) {
+            if (tokenizer.isKeyword(command.keyword))
+                return command;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,241 @@
+package batch;
+
+import data.Priority;
+import exception.InvalidPriorityException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/*
+ * Splits a command stream into lines of ;-separated fields without regular expressions or line strings.
+ * Characters are read in blocks into one buffer, each field is copied into one reused char array and
+ * keywords, numbers, dates and priorities are matched and parsed straight from it. Blank lines and
+ * lines starting with # are skipped.
+ */
+class CommandTokenizer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int END_OF_INPUT = -1;
+    private static final char SEPARATOR = ';';
+    private static final char COMMENT = '#';
+    private static final int DATE_LENGTH = 10;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private char[] field = new char[128];
+    private int fieldLength;
+    private boolean lineEnded = true;
+    private long line = 1;
+    private long commandLine;
+
+    CommandTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    // skips what is left of the current line and reads the keyword of the next command, false at the end
+    boolean nextCommand() throws IOException {
+        skipLine();
+        while (position < limit || fill()) {
+            commandLine = line;
+            readField();
+            if (fieldLength == 0 && lineEnded)
+                continue;
+            if (fieldLength > 0 && field[0] == COMMENT) {
+                skipLine();
+                continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    long getLine() {
+        return commandLine;
+    }
+
+    boolean isKeyword(String keyword) {
+        return fieldEquals(keyword);
+    }
+
+    // the field text, possibly empty
+    String readString() throws IOException {
+        nextRequiredField();
+        return new String(field, 0, fieldLength);
+    }
+
+    // null if the field is empty or the line ended before it
+    String readOptionalString() throws IOException {
+        return nextOptionalField() ? new String(field, 0, fieldLength) : null;
+    }
+
+    long readLong() throws IOException {
+        nextRequiredField();
+        return parseLong();
+    }
+
+    LocalDate readDate() throws IOException {
+        nextRequiredField();
+        return parseDate();
+    }
+
+    LocalDate readOptionalDate() throws IOException {
+        return nextOptionalField() ? parseDate() : null;
+    }
+
+    Priority readPriority() throws IOException {
+        nextRequiredField();
+        return parsePriority();
+    }
+
+    Priority readOptionalPriority() throws IOException {
+        return nextOptionalField() ? parsePriority() : null;
+    }
+
+    // a line may end with a trailing separator
+    void endLine() throws IOException {
+        if (lineEnded)
+            return;
+
+        readField();
+        if (fieldLength != 0 || !lineEnded)
+            throw new IllegalArgumentException("Unexpected data at the end of the line.");
+    }
+
+    private void skipLine() throws IOException {
+        while (!lineEnded) {
+            readField();
+        }
+    }
+
+    private void nextRequiredField() throws IOException {
+        if (lineEnded)
+            throw new IllegalArgumentException("Missing fields.");
+        readField();
+    }
+
+    private boolean nextOptionalField() throws IOException {
+        if (lineEnded)
+            return false;
+        readField();
+        return fieldLength > 0;
+    }
+
+    private void readField() throws IOException {
+        fieldLength = 0;
+        lineEnded = false;
+
+        while (true) {
+            if (position == limit && !fill()) {
+                lineEnded = true;
+                return;
+            }
+
+            char c = buffer[position++];
+            if (c == SEPARATOR) {
+                return;
+            } else if (c == '\n') {
+                line++;
+                lineEnded = true;
+                return;
+            } else if (c != '\r') {
+                if (fieldLength == field.length) {
+                    char[] grown = new char[field.length * 2];
+                    System.arraycopy(field, 0, grown, 0, fieldLength);
+                    field = grown;
+                }
+                field[fieldLength++] = c;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+
+        if (read == END_OF_INPUT) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private long parseLong() {
+        if (fieldLength == 0)
+            throw new IllegalArgumentException("Number expected.");
+
+        long value = 0;
+        for (int i = 0; i < fieldLength; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10)
+                throw new IllegalArgumentException("Invalid number " + new String(field, 0, fieldLength) + ".");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // yyyy-MM-dd
+    private LocalDate parseDate() {
+        if (fieldLength != DATE_LENGTH || field[4] != '-' || field[7] != '-')
+            throw new IllegalArgumentException("Incorrect date, required format (yyyy-MM-dd).");
+
+        try {
+            return LocalDate.of(digits(0, 4), digits(5, 2), digits(8, 2));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Incorrect date, required format (yyyy-MM-dd).");
+        }
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw new IllegalArgumentException("Incorrect date, required format (yyyy-MM-dd).");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // priority number as in the console menu, or its name in any case
+    private Priority parsePriority() {
+        if (fieldLength == 1 && Character.isDigit(field[0]))
+            return Priority.createFromInt(field[0] - '0');
+
+        for (Priority priority : PRIORITIES) {
+            if (fieldEqualsIgnoreCase(priority.name()))
+                return priority;
+        }
+        throw new InvalidPriorityException("Invalid priority: " + new String(field, 0, fieldLength) + ".");
+    }
+
+    private boolean fieldEquals(String value) {
+        if (value.length() != fieldLength)
+            return false;
+
+        for (int i = 0; i < fieldLength; i++) {
+            if (field[i] != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean fieldEqualsIgnoreCase(String value) {
+        if (value.length() != fieldLength)
+            return false;
+
+        for (int i = 0; i < fieldLength; i++) {
+            if (Character.toUpperCase(field[i]) != Character.toUpperCase(value.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+}
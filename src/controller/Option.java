@@ -18,7 +18,16 @@ public enum Option {
     SHOW_STATISTICS(12, "Show statistics"),
     CLEAR_STATISTICS(13, "Clear statistics"),
     SHOW_HISTORY(14, "Show task history"),
-    CLEAR_HISTORY(15, "Clear history");
+    CLEAR_HISTORY(15, "Clear history"),
+    FIND_TASK_RANKED(16, "Find tasks by name or description, best matches first"),
+    IMPORT_TASKS(17, "Import tasks from a CSV file"),
+    EXPORT_TASKS(18, "Export all tasks to a CSV file"),
+    SHOW_METRICS(19, "Show operation timings and database metrics"),
+    FIND_TASKS_BY_PRIORITY(20, "Find tasks by priority"),
+    SHOW_HISTORY_BY_STATUS(21, "Show ended or failed tasks from the history"),
+    FIND_TASKS_BETWEEN_DATES(22, "Find tasks between two dates"),
+    SHOW_WEEK_AGENDA(23, "Show this week's agenda"),
+    SHOW_MONTH_AGENDA(24, "Show this month's agenda");
 
     private final int value;
     private final String description;
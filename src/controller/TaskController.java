@@ -2,34 +2,74 @@ package controller;
 
 import data.Task;
 import data.Database;
+import data.Priority;
+import data.Status;
+import data.TaskPage;
 import exception.*;
 import io.ConsolePrinter;
 import io.DataReader;
+import io.file.BatchReport;
+import io.file.CsvBatchExporter;
+import io.file.CsvBatchImporter;
 import io.file.FileManager;
+import io.file.SegmentedHistoryArchive;
 import io.file.FileManagerFactory;
+import io.file.TimedFileManager;
+import io.file.WrittenBytes;
+import metrics.Metrics;
+import service.AutosaveScheduler;
+import service.DeadlineExpiryScheduler;
+import service.TaskListener;
 import service.TaskService;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 
 public class TaskController {
+    private static final int PAGE_SIZE = 20;
+
     private final ConsolePrinter printer = new ConsolePrinter();
     private final DataReader reader = new DataReader(printer);
 
     private TaskService taskService;
     private FileManager fileManager;
+    private DeadlineExpiryScheduler expiryScheduler;
+    // null for journaling file managers, which need no autosave
+    private AutosaveScheduler autosave;
 
     public TaskController() {
+        FileManager selectedFileManager = new FileManagerFactory(reader, printer).getFileManager();
+        fileManager = new TimedFileManager(selectedFileManager);
+
         try {
-            fileManager = new FileManagerFactory(reader, printer).getFileManager();
             taskService = new TaskService(fileManager.readFromFile());
-            checkDatabaseForFailedTasksAndFailThem();
             printer.printLine("Data from file loaded successfully.");
         } catch (FileReadException | IllegalArgumentException e) {
             printer.printLine(e.getMessage());
             printer.printLine("Initializes new database.");
             taskService = new TaskService(new Database());
         }
+
+        // history beyond the recent tail is kept in compressed segments on disk
+        taskService.getDatabase().setHistoryArchive(SegmentedHistoryArchive.of(fileManager));
+
+        // journaling file managers record every change as it happens, the others are saved in the background
+        if (selectedFileManager instanceof TaskListener listener) {
+            taskService.addListener(listener);
+        } else {
+            autosave = new AutosaveScheduler(taskService, fileManager::saveToFile, AutosaveScheduler.DEFAULT_INTERVAL,
+                    WrittenBytes::total, e -> printer.printLine("\nAutosave failed: " + e.getMessage()));
+            taskService.addListener(autosave);
+            autosave.start();
+        }
+
+        taskService.registerGauges();
+        Metrics.gauge("files.bytesWritten", WrittenBytes::total);
+
+        expiryScheduler = new DeadlineExpiryScheduler(taskService, this::printExpiredTasks,
+                e -> printer.printLine("\nFailing overdue tasks failed: " + e.getMessage()));
+        expiryScheduler.start();
     }
 
     public void mainLoop() {
@@ -42,17 +82,10 @@ public class TaskController {
         } while (option != Option.EXIT);
     }
 
-    private void checkDatabaseForFailedTasksAndFailThem() {
-        List<Task> tasksToFail = taskService.getTasks().entrySet().stream()
-                // Find unfinished tasks whose deadline has passed and fail them
-                .filter(entry -> entry.getKey().isBefore(LocalDate.now()))
-                .map(Map.Entry::getValue)
-                .flatMap(Collection::stream)
-                .toList();
-
-        for (Task task : tasksToFail) {
-            taskService.failTask(task);
-        }
+    // called from the scheduler thread after each midnight sweep
+    private void printExpiredTasks(int expiredTasks) {
+        if (expiredTasks > 0)
+            printer.printLine("\n" + expiredTasks + " task(s) passed their deadline and were marked as failed.");
     }
 
     private Option readOption() {
@@ -90,12 +123,24 @@ public class TaskController {
             case CLEAR_STATISTICS -> clearStatistics();
             case SHOW_HISTORY -> showHistory();
             case CLEAR_HISTORY -> clearHistory();
+            case FIND_TASK_RANKED -> findTaskRanked();
+            case IMPORT_TASKS -> importTasks();
+            case EXPORT_TASKS -> exportTasks();
+            case SHOW_METRICS -> showMetrics();
+            case FIND_TASKS_BY_PRIORITY -> findTasksByPriority();
+            case SHOW_HISTORY_BY_STATUS -> showHistoryByStatus();
+            case FIND_TASKS_BETWEEN_DATES -> findTasksBetweenDates();
+            case SHOW_WEEK_AGENDA -> showWeekAgenda();
+            case SHOW_MONTH_AGENDA -> showMonthAgenda();
         }
     }
 
     private void exit() {
+        expiryScheduler.stop();
+        if (autosave != null)
+            autosave.stop();
         try {
-            fileManager.saveToFile(taskService.getDatabase());
+            taskService.save(fileManager::saveToFile);
             printer.printLine("Data to file exported successfully.");
         } catch (FileWriteException e) {
             printer.printLine(e.getMessage());
@@ -128,32 +173,57 @@ public class TaskController {
             Task task = reader.readAndCreateTask();
             taskService.addTask(task);
             printer.printLine("Task added successfully.");
-        } catch (TaskNameCantBeEmptyOrNull e) {
+        } catch (TaskNameCantBeEmptyOrNull | InvalidTaskTextException e) {
             printer.printLine(e.getMessage());
         }
     }
 
     private void endTodaysTopTask() {
-        List<Task> tasks = taskService.findTasksByDate(LocalDate.now());
+        Task task = taskService.endAndReturnFirstTask(LocalDate.now());
 
-        if (tasks == null || tasks.isEmpty()) {
+        if (task == null) {
             printer.printLine("Today's task list is empty.");
         } else {
-            Task task = taskService.endAndReturnFirstTask(tasks);
             printer.printLine("The task \"" + task.getName() + "\" has been completed.");
         }
     }
 
     private void printFutureTasks() {
-        Map<LocalDate, List<Task>> tasks = taskService.getTasks();
-
-        if (tasks == null || tasks.isEmpty()) {
+        if (taskService.getTasks().isEmpty()) {
             printer.printLine("The task list is empty.");
         } else {
-            printer.printAllTasks(tasks);
+            browsePages(taskService::getTasksPage, true);
         }
     }
 
+    // shows one page at a time, until the user leaves or there is only one page
+    private void browsePages(PageLoader loader, boolean groupByDate) {
+        int offset = 0;
+
+        while (true) {
+            TaskPage page = loader.load(offset, PAGE_SIZE);
+            printer.printTaskPage(page, groupByDate);
+            if (!page.hasNext() && !page.hasPrevious())
+                return;
+
+            printer.printLine((page.hasNext() ? "n - next page, " : "") +
+                    (page.hasPrevious() ? "p - previous page, " : "") + "Enter - back to menu");
+            printer.promptCharacter();
+            String command = reader.readLine().trim();
+
+            if (command.equalsIgnoreCase("n") && page.hasNext())
+                offset += PAGE_SIZE;
+            else if (command.equalsIgnoreCase("p") && page.hasPrevious())
+                offset = Math.max(0, offset - PAGE_SIZE);
+            else
+                return;
+        }
+    }
+
+    private interface PageLoader {
+        TaskPage load(int offset, int limit);
+    }
+
     private LocalDate getDateAndPrintTasks() {
         printer.printLine("Enter the date for the task operation, format (DD-MM-YYYY).");
         printer.promptCharacter();
@@ -200,8 +270,10 @@ public class TaskController {
 
         try {
             Task task = taskService.getTaskByDateAndIndex(date, index);
-            taskService.endTask(task);
-            printer.printLine("Task \"" + task.getName() + "\" completed successfully.");
+            if (taskService.endTask(task) != null)
+                printer.printLine("Task \"" + task.getName() + "\" completed successfully.");
+            else
+                printTaskNoLongerExists(task);
         } catch (IndexOutOfBoundsException e) {
             printer.printLine("Incorrect task number.");
         }
@@ -217,16 +289,16 @@ public class TaskController {
             Task editedTask = new Task(oldTask); //copy old task data
             boolean editedSuccessfully = reader.readAndEditTask(editedTask);
 
-            if (editedSuccessfully) {
+            if (!editedSuccessfully) {
+                printer.printLine("Error occurred while editing the task.");
+            } else if (taskService.replaceTask(oldTask, editedTask)) {
                 printer.printLine("Task \"" + oldTask.getName() + "\" edited successfully.");
-                taskService.removeTask(oldTask);
-                taskService.addTaskSilently(editedTask);
             } else {
-                printer.printLine("Error occurred while editing the task.");
+                printTaskNoLongerExists(oldTask);
             }
         } catch (IndexOutOfBoundsException e) {
             printer.printLine("Incorrect task number.");
-        } catch (NullPointerException | DeadlineDateMustBeFuture e) {
+        } catch (NullPointerException | DeadlineDateMustBeFuture | InvalidTaskTextException e) {
             printer.printLine(e.getMessage());
         }
     }
@@ -238,13 +310,20 @@ public class TaskController {
 
         try {
             Task task = taskService.getTaskByDateAndIndex(date, index);
-            taskService.removeTask(task);
-            printer.printLine("Task \"" + task.getName() + "\" deleted successfully.");
+            if (taskService.removeTask(task))
+                printer.printLine("Task \"" + task.getName() + "\" deleted successfully.");
+            else
+                printTaskNoLongerExists(task);
         } catch (IndexOutOfBoundsException e) {
             printer.printLine("Incorrect task number.");
         }
     }
 
+    // another client ended or removed the task after the list was printed
+    private void printTaskNoLongerExists(Task task) {
+        printer.printLine("Task \"" + task.getName() + "\" no longer exists.");
+    }
+
     private void findTaskByName() {
         printer.printLine("Enter task name");
         printer.promptCharacter();
@@ -258,6 +337,46 @@ public class TaskController {
         }
     }
 
+    private void findTaskRanked() {
+        printer.printLine("Enter text to search for in task names and descriptions");
+        printer.promptCharacter();
+        String query = reader.readLine();
+        Collection<Task> tasks = taskService.findTaskByNameRanked(query);
+
+        if (tasks.isEmpty()) {
+            printer.printLine("No tasks found.");
+        } else {
+            printer.printTasksWithIndex(tasks);
+        }
+    }
+
+    private void importTasks() {
+        printer.printLine("Enter the path of the file to import, one task per line (name;description;" +
+                "creation date;deadline;status;priority;)");
+        printer.promptCharacter();
+        String fileName = reader.readLine();
+
+        try {
+            BatchReport report = new CsvBatchImporter(fileName).importInto(taskService);
+            printer.printLine("Imported " + report + ".");
+        } catch (FileReadException e) {
+            printer.printLine(e.getMessage());
+        }
+    }
+
+    private void exportTasks() {
+        printer.printLine("Enter the path of the file to export to");
+        printer.promptCharacter();
+        String fileName = reader.readLine();
+
+        try {
+            BatchReport report = new CsvBatchExporter(fileName).export(taskService.snapshot().getTasks());
+            printer.printLine("Exported " + report + ".");
+        } catch (FileWriteException e) {
+            printer.printLine(e.getMessage());
+        }
+    }
+
     private void findTasksByDate() {
         printer.printLine("Enter the date of tasks to be displayed, format (DD-MM-YYYY).");
         printer.promptCharacter();
@@ -273,6 +392,16 @@ public class TaskController {
 
     private void showStatistics() {
         printer.printLine(taskService.getStatistics());
+        if (autosave != null)
+            printer.printLine(String.format("Autosave: %d saves, %d failed, %d bytes written, last %d ms, " +
+                            "average %d ms, max %d ms, %d changes pending",
+                    autosave.getSaves(), autosave.getFailedSaves(), autosave.getSavedBytes(),
+                    autosave.getLastSaveTime().toMillis(), autosave.getAverageSaveTime().toMillis(),
+                    autosave.getMaxSaveTime().toMillis(), autosave.getPendingChanges()));
+    }
+
+    private void showMetrics() {
+        printer.print(Metrics.report());
     }
 
     private void clearStatistics() {
@@ -281,16 +410,74 @@ public class TaskController {
     }
 
     private void showHistory() {
-        List<Task> history = taskService.getHistory();
-
-        if (history == null || history.isEmpty()) {
+        if (taskService.getHistoryPage(0, 0).getTotal() == 0) {
             printer.printLine("History is empty.");
         } else {
             printer.printLine("History");
-            printer.printTasksWithIndex(taskService.getHistory());
+            browsePages(taskService::getHistoryPage, false);
+        }
+    }
+
+    private void findTasksByPriority() {
+        Priority priority = reader.readAndSelectPriority();
+        if (taskService.getTasksPage(priority, 0, 0).getTotal() == 0) {
+            printer.printLine("No tasks found.");
+        } else {
+            printer.printLine(priority.name() + " tasks");
+            browsePages((offset, limit) -> taskService.getTasksPage(priority, offset, limit), false);
+        }
+    }
+
+    private void showHistoryByStatus() {
+        Status status = reader.readAndSelectHistoryStatus();
+        if (taskService.getHistoryPage(status, 0, 0).getTotal() == 0) {
+            printer.printLine("No tasks found.");
+        } else {
+            printer.printLine(status.name() + " tasks");
+            browsePages((offset, limit) -> taskService.getHistoryPage(status, offset, limit), false);
+        }
+    }
+
+    // counts per day first, then the tasks a page at a time, both read from the date range only
+    private void findTasksBetweenDates() {
+        printer.printLine("Enter the first date, format (DD-MM-YYYY).");
+        printer.promptCharacter();
+        LocalDate from = reader.readDate();
+        printer.printLine("Enter the last date, format (DD-MM-YYYY).");
+        printer.promptCharacter();
+        LocalDate to = reader.readDate();
+
+        if (to.isBefore(from)) {
+            printer.printLine("The last date can't be before the first date.");
+            return;
+        }
+
+        NavigableMap<LocalDate, Integer> counts = taskService.countTasksPerDay(from, to);
+        if (counts.isEmpty()) {
+            printer.printLine("No tasks found.");
+        } else {
+            printer.printTaskCounts(counts);
+            browsePages((offset, limit) -> taskService.getTasksPage(from, to, offset, limit), true);
         }
     }
 
+    private void showWeekAgenda() {
+        NavigableMap<LocalDate, List<Task>> agenda = taskService.getWeekAgenda(LocalDate.now());
+        if (agenda.isEmpty())
+            printer.printLine("No tasks this week.");
+        else
+            printer.printAgenda("This week's agenda", agenda);
+    }
+
+    private void showMonthAgenda() {
+        YearMonth month = YearMonth.now();
+        NavigableMap<LocalDate, List<Task>> agenda = taskService.getMonthAgenda(month);
+        if (agenda.isEmpty())
+            printer.printLine("No tasks this month.");
+        else
+            printer.printAgenda(month + " agenda", agenda);
+    }
+
     private void clearHistory() {
         taskService.clearHistory();
         printer.printLine("History deleted successfully.");
@@ -0,0 +1,58 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/*
+ * Immutable list kept in chunks of CHUNK_SIZE elements, all full but the last. A new version of a list that only
+ * changed from some position on shares every full chunk before that position with the old version, so a history
+ * that grows is copied once and every later version copies only the tasks added since.
+ */
+final class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final ChunkedList<?> EMPTY = new ChunkedList<>(new Object[0][], 0);
+
+    private final Object[][] chunks;
+    private final int size;
+
+    private ChunkedList(Object[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> ChunkedList<E> empty() {
+        return (ChunkedList<E>) EMPTY;
+    }
+
+    // the elements of source, which matches the previous version before changedFrom
+    static <E> ChunkedList<E> of(ChunkedList<E> previous, int changedFrom, List<E> source) {
+        int size = source.size();
+        if (changedFrom >= size && size == previous.size)
+            return previous;
+
+        int sharedChunks = Math.min(Math.min(changedFrom, previous.size), size) >>> CHUNK_BITS;
+        Object[][] chunks = new Object[(size + CHUNK_SIZE - 1) >>> CHUNK_BITS][];
+        System.arraycopy(previous.chunks, 0, chunks, 0, sharedChunks);
+        for (int chunk = sharedChunks; chunk < chunks.length; chunk++) {
+            int start = chunk << CHUNK_BITS;
+            chunks[chunk] = source.subList(start, Math.min(size, start + CHUNK_SIZE)).toArray();
+        }
+        return new ChunkedList<>(chunks, size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) chunks[index >>> CHUNK_BITS][index & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
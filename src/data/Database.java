@@ -1,83 +1,848 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
+// safe to share between threads: days are locked individually, counters are LongAdders
 public class Database implements Serializable {
-    private int tasksCreated;
-    private int tasksCompleted;
-    private int tasksFailed;
+    // that of the first version, whose files still load
+    @Serial
+    private static final long serialVersionUID = 7099906340677908218L;
+    /*
+     * The serial form keeps the fields of the first version, int counters, the tasks by date and the history,
+     * and adds the statistics and the last id, which files written before them lack.
+     */
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("tasksCreated", int.class),
+            new ObjectStreamField("tasksCompleted", int.class),
+            new ObjectStreamField("tasksFailed", int.class),
+            new ObjectStreamField("tasks", Map.class),
+            new ObjectStreamField("tasksHistory", List.class),
+            new ObjectStreamField("statistics", TaskStatistics.class),
+            new ObjectStreamField("lastTaskId", long.class)
+    };
+    private static final int HOT_HISTORY = 1000;
+    private static final int ARCHIVE_SEGMENT = 1000;
+
+    private final LongAdder tasksCreated = new LongAdder();
+    private final LongAdder tasksCompleted = new LongAdder();
+    private final LongAdder tasksFailed = new LongAdder();
+    private final TaskStatistics statistics = new TaskStatistics();
+    // highest task id given out or loaded, ids are never given out twice
+    private final AtomicLong lastTaskId = new AtomicLong();
 
     // tasks grouped by date and sorted by priority
-    private final Map<LocalDate, List<Task>> tasks = new TreeMap<>();
-    private final List<Task> tasksHistory = new ArrayList<>();
+    private final ConcurrentNavigableMap<LocalDate, DayTasks> tasks = new ConcurrentSkipListMap<>();
+    private final List<Task> tasksHistory = Collections.synchronizedList(new ArrayList<>());
+    // rebuilt from tasks after deserialization
+    private transient TaskTextIndex textIndex = new TaskTextIndex();
+    // node of every loaded task by its id, also rebuilt after deserialization
+    private transient TaskIdIndex taskIds = new TaskIdIndex();
+    /*
+     * Dates holding tasks of each priority, also rebuilt after deserialization. A date's entries change only
+     * under the lock of the day mapped for it, before the day leaves the map, so a day created for the same
+     * date later never has its entries removed. Unloaded days are listed under every priority until loaded,
+     * unless their file told the tasks of each priority.
+     */
+    private transient Map<Priority, NavigableSet<LocalDate>> datesByPriority = createDatesByPriority();
+    // built on the first query by status, guarded by tasksHistory
+    private transient HistoryStatusIndex historyStatusIndex;
+    // false while some day was added unloaded, text searches load every day first
+    private transient volatile boolean allDaysLoaded = true;
+    // older history outside the heap, tasksHistory keeps only the recent tail once it is set
+    private transient HistoryArchive historyArchive;
+    // oldest history being moved to the archive while the database is saved
+    private transient List<Task> archivingHistory = List.of();
+
+    // changes since the last takeChanges, so a file manager can write only those
+    private transient Set<LocalDate> changedDays = ConcurrentHashMap.newKeySet();
+    // guarded by tasksHistory
+    private transient int historyChangedFrom = DatabaseChanges.HISTORY_UNCHANGED;
+    private transient AtomicBoolean statisticsChanged = new AtomicBoolean();
+
+    // changes hold the read lock, so any number run at once, snapshot holds the write lock
+    private transient ReentrantReadWriteLock versionLock = new ReentrantReadWriteLock();
+    // the latest snapshot and what changed after it, guarded by the write lock
+    private transient DatabaseSnapshot lastSnapshot = DatabaseSnapshot.EMPTY;
+    private transient Set<LocalDate> snapshotDays = ConcurrentHashMap.newKeySet();
+    // guarded by tasksHistory
+    private transient int snapshotHistoryFrom;
+    // the database read by readObject, returned in place of the instance being deserialized
+    private transient Database deserialized;
 
     public int getTasksCreated() {
-        return tasksCreated;
+        return tasksCreated.intValue();
     }
 
     public void setTasksCreated(int tasksCreated) {
-        this.tasksCreated = tasksCreated;
+        this.tasksCreated.reset();
+        this.tasksCreated.add(tasksCreated);
+        statisticsChanged.set(true);
+    }
+
+    public void incrementTasksCreated() {
+        tasksCreated.increment();
+        statisticsChanged.set(true);
+    }
+
+    public void addTasksCreated(int count) {
+        tasksCreated.add(count);
+        statisticsChanged.set(true);
     }
 
     public int getTasksCompleted() {
-        return tasksCompleted;
+        return tasksCompleted.intValue();
     }
 
     public void setTasksCompleted(int tasksCompleted) {
-        this.tasksCompleted = tasksCompleted;
+        this.tasksCompleted.reset();
+        this.tasksCompleted.add(tasksCompleted);
+        statisticsChanged.set(true);
+    }
+
+    public void incrementTasksCompleted() {
+        tasksCompleted.increment();
+        statisticsChanged.set(true);
     }
 
     public int getTasksFailed() {
-        return tasksFailed;
+        return tasksFailed.intValue();
     }
 
     public void setTasksFailed(int tasksFailed) {
-        this.tasksFailed = tasksFailed;
+        this.tasksFailed.reset();
+        this.tasksFailed.add(tasksFailed);
+        statisticsChanged.set(true);
+    }
+
+    public void incrementTasksFailed() {
+        tasksFailed.increment();
+        statisticsChanged.set(true);
+    }
+
+    public long getLastTaskId() {
+        return lastTaskId.get();
+    }
+
+    // a saved value lower than the ids of the tasks read before it doesn't lower the last id
+    public void setLastTaskId(long lastTaskId) {
+        this.lastTaskId.accumulateAndGet(lastTaskId, Math::max);
+    }
+
+    // per priority, day and week counters next to the lifetime ones above
+    public TaskStatistics getStatistics() {
+        return statistics;
     }
 
     public Map<LocalDate, List<Task>> getTasks() {
+        return Collections.unmodifiableMap(tasks);
+    }
+
+    // days before the given date, found by range in O(log n) instead of a scan over all days
+    public NavigableMap<LocalDate, List<Task>> getTasksBefore(LocalDate date) {
+        return Collections.unmodifiableNavigableMap(tasks.headMap(date));
+    }
+
+    // days from one date to another, both included, as a view found in O(log n); a null date leaves its side open
+    public NavigableMap<LocalDate, List<Task>> getTasksBetween(LocalDate from, LocalDate to) {
+        return Collections.unmodifiableNavigableMap(days(from, to));
+    }
+
+    // number of tasks of every day in the range that has any, the days are counted without being loaded
+    public NavigableMap<LocalDate, Integer> countTasksPerDay(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Integer> counts = new TreeMap<>();
+        for (Map.Entry<LocalDate, DayTasks> day : days(from, to).entrySet()) {
+            int size = day.getValue().size();
+            if (size > 0)
+                counts.put(day.getKey(), size);
+        }
+        return counts;
+    }
+
+    private NavigableMap<LocalDate, DayTasks> days(LocalDate from, LocalDate to) {
+        if (from != null && to != null) {
+            if (to.isBefore(from))
+                throw new IllegalArgumentException("The end date " + to + " is before the start date " + from + ".");
+            return tasks.subMap(from, true, to, true);
+        }
+        if (from != null)
+            return tasks.tailMap(from, true);
+        if (to != null)
+            return tasks.headMap(to, true);
         return tasks;
     }
 
+    // copy of the history not yet archived, so callers can iterate it while other threads add to it
     public List<Task> getTasksHistory() {
-        return tasksHistory;
+        synchronized (tasksHistory) {
+            return List.copyOf(tasksHistory);
+        }
+    }
+
+    /*
+     * Tasks in date and priority order from offset, at most limit of them.
+     * Days before the page are skipped by their size, so only the days on the page are copied.
+     */
+    public TaskPage getTasksPage(int offset, int limit) {
+        return getTasksPage(null, null, offset, limit);
+    }
+
+    // the same within a date range, only the days of the range are visited
+    public TaskPage getTasksPage(LocalDate from, LocalDate to, int offset, int limit) {
+        checkPage(offset, limit);
+        List<Task> page = new ArrayList<>();
+        int position = 0;
+        int firstNumber = 1;
+
+        for (DayTasks dayTasks : days(from, to).values()) {
+            int daySize = dayTasks.size();
+            if (page.size() == limit || position + daySize <= offset) {
+                position += daySize;
+                continue;
+            }
+
+            List<Task> day = dayTasks.snapshot();
+            int start = Math.max(0, offset - position);
+            if (page.isEmpty())
+                firstNumber = start + 1;
+            for (int i = start; i < day.size() && page.size() < limit; i++) {
+                page.add(day.get(i));
+            }
+            position += day.size();
+        }
+        return new TaskPage(page, offset, position, firstNumber);
+    }
+
+    // tasks of one priority in date order, only the dates holding such tasks are visited
+    public TaskPage getTasksPage(Priority priority, int offset, int limit) {
+        checkPage(offset, limit);
+        List<Task> page = new ArrayList<>();
+        int position = 0;
+
+        for (LocalDate date : datesByPriority.get(priority)) {
+            DayTasks dayTasks = tasks.get(date);
+            if (dayTasks == null)
+                continue;
+
+            int laneSize = laneSize(date, dayTasks, priority);
+            if (page.size() == limit || position + laneSize <= offset) {
+                position += laneSize;
+                continue;
+            }
+
+            List<Task> lane = dayTasks.snapshot(priority);
+            for (int i = Math.max(0, offset - position); i < lane.size() && page.size() < limit; i++) {
+                page.add(lane.get(i));
+            }
+            position += lane.size();
+        }
+        return new TaskPage(page, offset, position, offset + 1);
+    }
+
+    // drops a date listed for a priority it has no tasks of, e.g. after its day was loaded
+    private int laneSize(LocalDate date, DayTasks dayTasks, Priority priority) {
+        synchronized (dayTasks) {
+            int laneSize = dayTasks.size(priority);
+            if (laneSize == 0 && !dayTasks.isClosed() && tasks.get(date) == dayTasks)
+                datesByPriority.get(priority).remove(date);
+            return laneSize;
+        }
+    }
+
+    // ended or failed history in history order, the index is built on first use and kept up to date after that
+    public TaskPage getHistoryPage(Status status, int offset, int limit) {
+        checkPage(offset, limit);
+        synchronized (tasksHistory) {
+            if (historyStatusIndex == null)
+                historyStatusIndex = buildHistoryStatusIndex();
+
+            int archived = archivedHistorySize();
+            int[] positions = historyStatusIndex.positions(status, offset, limit);
+            List<Task> page = new ArrayList<>(positions.length);
+            for (int i = 0; i < positions.length; ) {
+                int position = positions[i];
+                if (position >= archived) {
+                    page.add(tasksHistory.get(position - archived));
+                    i++;
+                    continue;
+                }
+
+                // the archived positions within one segment are read with a single read of it
+                int segmentEnd = Math.min(archived, (position / ARCHIVE_SEGMENT + 1) * ARCHIVE_SEGMENT);
+                int last = i;
+                while (last + 1 < positions.length && positions[last + 1] < segmentEnd) {
+                    last++;
+                }
+                List<Task> segment = historyArchive.read(position, positions[last] - position + 1);
+                for (; i <= last; i++) {
+                    page.add(segment.get(positions[i] - position));
+                }
+            }
+            int total = historyStatusIndex.count(status);
+            return new TaskPage(page, Math.min(offset, total), total, Math.min(offset, total) + 1);
+        }
+    }
+
+    // the archive is read once, a segment at a time
+    private HistoryStatusIndex buildHistoryStatusIndex() {
+        HistoryStatusIndex index = new HistoryStatusIndex();
+        int archived = archivedHistorySize();
+        for (int offset = 0; offset < archived; offset += ARCHIVE_SEGMENT) {
+            List<Task> segment = historyArchive.read(offset, ARCHIVE_SEGMENT);
+            for (int i = 0; i < segment.size(); i++) {
+                index.add(segment.get(i).getStatus(), offset + i);
+            }
+        }
+        for (int i = 0; i < tasksHistory.size(); i++) {
+            index.add(tasksHistory.get(i).getStatus(), archived + i);
+        }
+        return index;
+    }
+
+    private int archivedHistorySize() {
+        return historyArchive == null ? 0 : historyArchive.size();
+    }
+
+    // archived tasks come first, the pages are read from the segments they fall into
+    public TaskPage getHistoryPage(int offset, int limit) {
+        checkPage(offset, limit);
+        synchronized (tasksHistory) {
+            int archived = historyArchive == null ? 0 : historyArchive.size();
+            int total = archived + tasksHistory.size();
+            int start = Math.min(offset, total);
+            int end = Math.min(total, start + limit);
+
+            List<Task> page = new ArrayList<>();
+            if (start < archived)
+                page.addAll(historyArchive.read(start, Math.min(end, archived) - start));
+            if (end > archived)
+                page.addAll(tasksHistory.subList(Math.max(start, archived) - archived, end - archived));
+            return new TaskPage(page, start, total, start + 1);
+        }
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("Page offset and limit can't be negative.");
+    }
+
+    /*
+     * Runs a change made of several steps, e.g. a task removed, added to the history and counted, so that no snapshot
+     * sees only some of them. Such changes still run concurrently with each other.
+     */
+    public <T> T atomically(Supplier<T> change) {
+        versionLock.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    // true while the current thread is making a change, e.g. one of the steps of a larger one
+    public boolean isChanging() {
+        return versionLock.getReadHoldCount() > 0;
+    }
+
+    public void runAtomically(Runnable change) {
+        versionLock.readLock().lock();
+        try {
+            change.run();
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    /*
+     * One consistent version of the tasks, the history and the counters, which later changes leave as it is.
+     * Writers wait only while the days changed since the previous snapshot are put into a new version of its
+     * persistent day map, which takes O(log n) per day; such a day is copied later, when the snapshot reads it
+     * or before it next changes. Unchanged days and full history chunks are shared with the previous snapshot,
+     * and nothing waits while the snapshot is saved or printed.
+     */
+    public DatabaseSnapshot snapshot() {
+        return snapshot(() -> {
+        });
+    }
+
+    // the action runs at the instant of the snapshot, while no change is in progress, e.g. to start a new journal
+    public DatabaseSnapshot snapshot(Runnable atSnapshot) {
+        versionLock.writeLock().lock();
+        try {
+            PersistentSortedMap<LocalDate, List<Task>> days = lastSnapshot.days();
+            for (Iterator<LocalDate> iterator = snapshotDays.iterator(); iterator.hasNext(); ) {
+                LocalDate date = iterator.next();
+                iterator.remove();
+                DayTasks dayTasks = tasks.get(date);
+                days = dayTasks == null || dayTasks.isEmpty() ? days.without(date) : days.with(date, dayTasks.version());
+            }
+
+            ChunkedList<Task> history;
+            synchronized (tasksHistory) {
+                history = ChunkedList.of(lastSnapshot.history(), snapshotHistoryFrom, tasksHistory);
+                snapshotHistoryFrom = DatabaseChanges.HISTORY_UNCHANGED;
+            }
+
+            lastSnapshot = new DatabaseSnapshot(days, history, getTasksCreated(), getTasksCompleted(), getTasksFailed(),
+                    lastTaskId.get(), statistics.copy());
+            atSnapshot.run();
+            return lastSnapshot;
+        } finally {
+            versionLock.writeLock().unlock();
+        }
     }
 
     public void addTask(Task task) {
-        LocalDate key = task.getDeadline();
+        addToDay(task.getDeadline(), List.of(task));
+    }
+
+    // one map lookup and one lock per day instead of one per task
+    public void addTasks(Collection<Task> newTasks) {
+        Map<LocalDate, List<Task>> tasksByDate = new LinkedHashMap<>();
+        for (Task task : newTasks) {
+            // given before grouping, so new ids follow the order of the tasks rather than that of their days
+            if (task.getId() == 0) {
+                task.setId(lastTaskId.incrementAndGet());
+                statisticsChanged.set(true);
+            }
+            tasksByDate.computeIfAbsent(task.getDeadline(), date -> new ArrayList<>()).add(task);
+        }
+        tasksByDate.forEach(this::addToDay);
+    }
+
+    private void addToDay(LocalDate key, List<Task> newTasks) {
+        versionLock.readLock().lock();
+        try {
+            while (true) {
+                // DayTasks keeps each day ordered by priority on insert
+                DayTasks dayTasks = tasks.computeIfAbsent(key, date -> new DayTasks());
+                synchronized (dayTasks) {
+                    // a day emptied by another thread is dropped from the map, so retry with a fresh one
+                    if (!dayTasks.isClosed()) {
+                        for (Task task : newTasks) {
+                            indexTask(dayTasks.addNode(task));
+                            textIndex.add(task);
+                            datesByPriority.get(task.getPriority()).add(key);
+                        }
+                        dayChanged(key);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    private void dayChanged(LocalDate date) {
+        changedDays.add(date);
+        snapshotDays.add(date);
+    }
+
+    // callers hold tasksHistory
+    private void historyChanged(int from) {
+        historyChangedFrom = Math.min(historyChangedFrom, from);
+        snapshotHistoryFrom = Math.min(snapshotHistoryFrom, from);
+    }
+
+    // keeps the id the task has unless it has none or another stored task holds it, callers hold the day's lock
+    private void indexTask(DayTasks.Node node) {
+        Task task = node.getTask();
+        if (task.getId() != 0 && taskIds.putIfAbsent(task.getId(), node)) {
+            lastTaskId.accumulateAndGet(task.getId(), Math::max);
+            return;
+        }
+
+        long id;
+        do {
+            id = lastTaskId.incrementAndGet();
+        } while (!taskIds.putIfAbsent(id, node));
+        task.setId(id);
+        dayChanged(task.getDeadline());
+        statisticsChanged.set(true);
+    }
 
-        if (!tasks.containsKey(key))
-            tasks.put(key, new ArrayList<>());
+    /*
+     * A day whose tasks the loader decodes on first use, its tasks join the id and text indexes then.
+     * The number of tasks of each priority by ordinal lets paging by priority count the day without loading it.
+     */
+    public void addUnloadedDay(LocalDate date, int[] laneSizes, Supplier<List<Task>> loader) {
+        if (laneSizes.length != Priority.values().length)
+            throw new IllegalArgumentException("One task count per priority expected.");
 
-        tasks.get(key).add(task);
-        sortTasksByPriority(key);
+        versionLock.readLock().lock();
+        try {
+            DayTasks dayTasks = new DayTasks(laneSizes.clone(), loader, node -> {
+                indexTask(node);
+                textIndex.add(node.getTask());
+            });
+            if (tasks.putIfAbsent(date, dayTasks) != null)
+                throw new IllegalStateException("Tasks for " + date + " are already loaded.");
+            for (Priority priority : Priority.values()) {
+                if (laneSizes[priority.ordinal()] > 0)
+                    datesByPriority.get(priority).add(date);
+            }
+            snapshotDays.add(date);
+            allDaysLoaded = false;
+        } finally {
+            versionLock.readLock().unlock();
+        }
     }
 
-    private void sortTasksByPriority(LocalDate key) {
-        Collections.sort(tasks.get(key));
+    public void loadAllDays() {
+        if (allDaysLoaded)
+            return;
+        tasks.values().forEach(DayTasks::load);
+        allDaysLoaded = true;
     }
 
-    public void removeTask(LocalDate key, Task task) {
-        tasks.get(key).remove(task);
+    // the stored task with the id, null if there is none; days not loaded yet are loaded on a miss
+    public Task getTask(long id) {
+        DayTasks.Node node = taskIds.get(id);
+        if (node == null && !allDaysLoaded) {
+            loadAllDays();
+            node = taskIds.get(id);
+        }
+        return node == null ? null : node.getTask();
     }
 
+    /*
+     * Found by its id and unlinked from its day, neither the day nor its lane is searched.
+     * Removes the day as well once its last task is gone, returns false if the task was not stored.
+     */
+    public boolean removeTask(Task task) {
+        versionLock.readLock().lock();
+        try {
+            DayTasks.Node node = taskIds.get(task.getId());
+            if (node == null || node.getTask() != task)
+                return false;
+
+            LocalDate key = task.getDeadline();
+            DayTasks dayTasks = tasks.get(key);
+            if (dayTasks == null)
+                return false;
+
+            synchronized (dayTasks) {
+                // false if another thread removed the task first
+                if (!dayTasks.unlink(node))
+                    return false;
+                taskIds.remove(task.getId(), task);
+                textIndex.remove(task);
+                forgetPriorityIfEmpty(key, dayTasks, task.getPriority());
+                closeIfEmpty(key, dayTasks);
+            }
+            dayChanged(key);
+            return true;
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    // removes and returns the highest priority task of the day, null if there is none
+    public Task removeFirstTask(LocalDate key) {
+        versionLock.readLock().lock();
+        try {
+            DayTasks dayTasks = tasks.get(key);
+            if (dayTasks == null)
+                return null;
+
+            synchronized (dayTasks) {
+                if (dayTasks.isEmpty())
+                    return null;
+                Task task = dayTasks.removeFirstTask();
+                taskIds.remove(task.getId(), task);
+                textIndex.remove(task);
+                forgetPriorityIfEmpty(key, dayTasks, task.getPriority());
+                closeIfEmpty(key, dayTasks);
+                dayChanged(key);
+                return task;
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    private void forgetPriorityIfEmpty(LocalDate key, DayTasks dayTasks, Priority priority) {
+        if (dayTasks.size(priority) == 0)
+            datesByPriority.get(priority).remove(key);
+    }
+
+    // callers hold the day's lock
+    private void closeIfEmpty(LocalDate key, DayTasks dayTasks) {
+        if (dayTasks.isEmpty()) {
+            datesByPriority.values().forEach(dates -> dates.remove(key));
+            dayTasks.close();
+            tasks.remove(key, dayTasks);
+        }
+    }
+
+    // the day is locked before it leaves the map, like in closeIfEmpty
     public void removeTasksFromDate(LocalDate date) {
-        tasks.remove(date);
+        versionLock.readLock().lock();
+        try {
+            while (true) {
+                DayTasks removedTasks = tasks.get(date);
+                if (removedTasks == null)
+                    return;
+
+                synchronized (removedTasks) {
+                    // closed by another thread, which may have left a new day for the date
+                    if (removedTasks.isClosed())
+                        continue;
+
+                    datesByPriority.values().forEach(dates -> dates.remove(date));
+                    removedTasks.close();
+                    tasks.remove(date, removedTasks);
+                    removedTasks.forEach(task -> {
+                        taskIds.remove(task.getId(), task);
+                        textIndex.remove(task);
+                    });
+                }
+                dayChanged(date);
+                return;
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    // all the data replaced by that of the snapshot, e.g. when a replication follower catches up with its primary
+    // again; a snapshot of this database sees the old data or the new, never part of both
+    public void replaceWith(DatabaseSnapshot snapshot) {
+        runAtomically(() -> {
+            new ArrayList<>(tasks.keySet()).forEach(this::removeTasksFromDate);
+            clearHistory();
+            clearStatistics();
+
+            snapshot.getTasks().values().forEach(this::addTasks);
+            snapshot.getTasksHistory().forEach(this::addToHistory);
+            setTasksCreated(snapshot.getTasksCreated());
+            setTasksCompleted(snapshot.getTasksCompleted());
+            setTasksFailed(snapshot.getTasksFailed());
+            setLastTaskId(snapshot.getLastTaskId());
+            snapshot.getStatistics().forEachRow(statistics::setRow);
+        });
+    }
+
+    // tasks whose name contains the query, ignoring case
+    public List<Task> findTasksByName(String query) {
+        loadAllDays();
+        return textIndex.findByName(query);
+    }
+
+    // tasks whose name or description contains the query, best matches first
+    public List<Task> findTasksRanked(String query) {
+        loadAllDays();
+        return textIndex.findRanked(query);
     }
 
+    // history read from a file without ids gets new ones, like stored tasks
     public void addToHistory(Task task) {
-        tasksHistory.add(task);
+        versionLock.readLock().lock();
+        try {
+            if (task.getId() == 0)
+                task.setId(lastTaskId.incrementAndGet());
+            else
+                lastTaskId.accumulateAndGet(task.getId(), Math::max);
+
+            synchronized (tasksHistory) {
+                if (historyStatusIndex != null)
+                    historyStatusIndex.add(task.getStatus(), archivedHistorySize() + tasksHistory.size());
+                historyChanged(tasksHistory.size());
+                tasksHistory.add(task);
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
     }
 
     public void clearHistory() {
-        tasksHistory.clear();
+        versionLock.readLock().lock();
+        try {
+            synchronized (tasksHistory) {
+                tasksHistory.clear();
+                historyStatusIndex = null;
+                historyChanged(0);
+                if (historyArchive != null)
+                    historyArchive.clear();
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    // loaded history that is already in the archive after an interrupted save is dropped by the archive
+    public void setHistoryArchive(HistoryArchive historyArchive) {
+        versionLock.readLock().lock();
+        try {
+            synchronized (tasksHistory) {
+                historyArchive.recover(tasksHistory);
+                this.historyArchive = historyArchive;
+                // positions now count the archived tasks first
+                historyStatusIndex = null;
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Moves the oldest history out of the heap in whole segments, keeping at least HOT_HISTORY tasks.
+     * The archived tasks stay pending until commitArchivedHistory, called once the file without them
+     * is saved, or go back to the history with abortArchivedHistory if saving fails.
+     */
+    public void prepareArchivedHistory() {
+        versionLock.readLock().lock();
+        try {
+            synchronized (tasksHistory) {
+                if (historyArchive == null || tasksHistory.size() < HOT_HISTORY + ARCHIVE_SEGMENT)
+                    return;
+
+                int count = (tasksHistory.size() - HOT_HISTORY) / ARCHIVE_SEGMENT * ARCHIVE_SEGMENT;
+                List<Task> archived = tasksHistory.subList(0, count);
+                historyArchive.prepare(archived);
+                archivingHistory = new ArrayList<>(archived);
+                archived.clear();
+                historyChanged(0);
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    public void commitArchivedHistory() {
+        versionLock.readLock().lock();
+        try {
+            synchronized (tasksHistory) {
+                if (archivingHistory.isEmpty())
+                    return;
+                historyArchive.commit();
+                archivingHistory = List.of();
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    public void abortArchivedHistory() {
+        versionLock.readLock().lock();
+        try {
+            synchronized (tasksHistory) {
+                if (archivingHistory.isEmpty())
+                    return;
+                historyArchive.abort();
+                tasksHistory.addAll(0, archivingHistory);
+                archivingHistory = List.of();
+                historyChanged(0);
+            }
+        } finally {
+            versionLock.readLock().unlock();
+        }
     }
 
     public void clearStatistics() {
-        setTasksCreated(0);
-        setTasksCompleted(0);
-        setTasksFailed(0);
+        versionLock.readLock().lock();
+        try {
+            tasksCreated.reset();
+            tasksCompleted.reset();
+            tasksFailed.reset();
+            statistics.clear();
+            statisticsChanged.set(true);
+        } finally {
+            versionLock.readLock().unlock();
+        }
+    }
+
+    // returns and forgets what changed since the previous call, a change made meanwhile is kept for the next one
+    public DatabaseChanges takeChanges() {
+        Set<LocalDate> days = new HashSet<>();
+        for (Iterator<LocalDate> iterator = changedDays.iterator(); iterator.hasNext(); ) {
+            days.add(iterator.next());
+            iterator.remove();
+        }
+
+        int historyFrom;
+        synchronized (tasksHistory) {
+            historyFrom = historyChangedFrom;
+            historyChangedFrom = DatabaseChanges.HISTORY_UNCHANGED;
+        }
+
+        return new DatabaseChanges(days, historyFrom, statisticsChanged.getAndSet(false));
+    }
+
+    // puts back changes that could not be saved
+    public void restoreChanges(DatabaseChanges changes) {
+        changedDays.addAll(changes.getDays());
+        synchronized (tasksHistory) {
+            historyChangedFrom = Math.min(historyChangedFrom, changes.getHistoryFrom());
+        }
+        if (changes.isStatisticsChanged())
+            statisticsChanged.set(true);
+    }
+
+    // a copy holding one snapshot is serialized instead, so the database keeps changing while it is written
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        DatabaseSnapshot snapshot = snapshot();
+        Map<LocalDate, List<Task>> tasksByDate = new TreeMap<>();
+        snapshot.getTasks().forEach((date, dayTasks) -> tasksByDate.put(date, new ArrayList<>(dayTasks)));
+
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("tasksCreated", snapshot.getTasksCreated());
+        fields.put("tasksCompleted", snapshot.getTasksCompleted());
+        fields.put("tasksFailed", snapshot.getTasksFailed());
+        fields.put("tasks", tasksByDate);
+        fields.put("tasksHistory", new ArrayList<>(snapshot.getTasksHistory()));
+        fields.put("statistics", snapshot.getStatistics());
+        fields.put("lastTaskId", snapshot.getLastTaskId());
+        out.writeFields();
+    }
+
+    // the fields are final, so the database is built anew and returned by readResolve
+    @Serial
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Database database = new Database();
+        // loaded ids first, so the tasks of older files without ids get new ones after them
+        database.setLastTaskId(fields.get("lastTaskId", 0L));
+        ((Map<LocalDate, List<Task>>) fields.get("tasks", Map.of())).values().forEach(database::addTasks);
+        ((List<Task>) fields.get("tasksHistory", List.of())).forEach(database::addToHistory);
+        database.setTasksCreated(fields.get("tasksCreated", 0));
+        database.setTasksCompleted(fields.get("tasksCompleted", 0));
+        database.setTasksFailed(fields.get("tasksFailed", 0));
+        TaskStatistics loadedStatistics = (TaskStatistics) fields.get("statistics", null);
+        if (loadedStatistics != null)
+            loadedStatistics.forEachRow(database.statistics::setRow);
+        deserialized = database;
+    }
+
+    @Serial
+    private Object readResolve() {
+        return deserialized;
+    }
+
+    private static Map<Priority, NavigableSet<LocalDate>> createDatesByPriority() {
+        Map<Priority, NavigableSet<LocalDate>> datesByPriority = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            datesByPriority.put(priority, new ConcurrentSkipListSet<>());
+        }
+        return datesByPriority;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package data;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// what changed in a database since the previous Database.takeChanges
+public class DatabaseChanges {
+    public static final int HISTORY_UNCHANGED = Integer.MAX_VALUE;
+
+    private final Set<LocalDate> days;
+    // first changed position in the history kept in memory, HISTORY_UNCHANGED if nothing changed
+    private final int historyFrom;
+    private final boolean statisticsChanged;
+
+    public DatabaseChanges(Set<LocalDate> days, int historyFrom, boolean statisticsChanged) {
+        this.days = days;
+        this.historyFrom = historyFrom;
+        this.statisticsChanged = statisticsChanged;
+    }
+
+    public Set<LocalDate> getDays() {
+        return days;
+    }
+
+    public int getHistoryFrom() {
+        return historyFrom;
+    }
+
+    public boolean isHistoryChanged() {
+        return historyFrom != HISTORY_UNCHANGED;
+    }
+
+    public boolean isStatisticsChanged() {
+        return statisticsChanged;
+    }
+
+    public boolean isEmpty() {
+        return days.isEmpty() && !isHistoryChanged() && !statisticsChanged;
+    }
+}
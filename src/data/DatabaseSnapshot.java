@@ -0,0 +1,69 @@
+package data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// one version of a database, which later changes to the database leave as it is, see Database.snapshot
+public final class DatabaseSnapshot {
+    static final DatabaseSnapshot EMPTY = new DatabaseSnapshot(PersistentSortedMap.empty(), ChunkedList.empty(),
+            0, 0, 0, 0, new TaskStatistics());
+
+    private final PersistentSortedMap<LocalDate, List<Task>> tasks;
+    private final ChunkedList<Task> tasksHistory;
+    private final int tasksCreated;
+    private final int tasksCompleted;
+    private final int tasksFailed;
+    private final long lastTaskId;
+    private final TaskStatistics statistics;
+
+    DatabaseSnapshot(PersistentSortedMap<LocalDate, List<Task>> tasks, ChunkedList<Task> tasksHistory,
+                     int tasksCreated, int tasksCompleted, int tasksFailed, long lastTaskId, TaskStatistics statistics) {
+        this.tasks = tasks;
+        this.tasksHistory = tasksHistory;
+        this.tasksCreated = tasksCreated;
+        this.tasksCompleted = tasksCompleted;
+        this.tasksFailed = tasksFailed;
+        this.lastTaskId = lastTaskId;
+        this.statistics = statistics;
+    }
+
+    // days in date order, each sorted by priority; days without tasks are left out
+    public Map<LocalDate, List<Task>> getTasks() {
+        return tasks;
+    }
+
+    // the history not yet archived, like Database.getTasksHistory
+    public List<Task> getTasksHistory() {
+        return tasksHistory;
+    }
+
+    public int getTasksCreated() {
+        return tasksCreated;
+    }
+
+    public int getTasksCompleted() {
+        return tasksCompleted;
+    }
+
+    public int getTasksFailed() {
+        return tasksFailed;
+    }
+
+    public long getLastTaskId() {
+        return lastTaskId;
+    }
+
+    // a copy made for this snapshot, only to be read
+    public TaskStatistics getStatistics() {
+        return statistics;
+    }
+
+    PersistentSortedMap<LocalDate, List<Task>> days() {
+        return tasks;
+    }
+
+    ChunkedList<Task> history() {
+        return tasksHistory;
+    }
+}
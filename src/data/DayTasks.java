@@ -0,0 +1,381 @@
+package data;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// tasks of one day kept in one queue per priority, iterated from the highest priority down
+// and in insertion order within a priority, which is the order a stable sort by priority gives.
+// Every method locks the day, iterators work on a copy so readers never see a half-made change.
+// A day read lazily from a file only knows its size until a method needs its tasks.
+// Each task sits in a node that the database indexes by task id, so a task is unlinked without a search.
+// Only the database changes a day, through the package-private methods, which keep its indexes up to date;
+// to everyone else the day is a read-only list.
+class DayTasks extends AbstractList<Task> {
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Lane[] lanes = new Lane[PRIORITIES.length];
+    private int size;
+    // set once the day was removed from the database, it must not take new tasks after that
+    private boolean closed;
+    // decodes the tasks of an unloaded day, null once they are in the lanes
+    private transient Supplier<List<Task>> loader;
+    // tasks of each priority of an unloaded day by ordinal, null once it is loaded
+    private transient int[] unloadedLaneSizes;
+    // told about every node made by the loader
+    private transient Consumer<Node> loaded;
+    // immutable copy of the tasks that snapshots share until the day changes, null if not made since the last change
+    private transient List<Task> frozen;
+    // handed to a snapshot while there was no copy, copied when first read or before the day changes
+    private transient Version pendingVersion;
+
+    DayTasks() {
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    DayTasks(int[] laneSizes, Supplier<List<Task>> loader, Consumer<Node> loaded) {
+        this();
+        this.size = Arrays.stream(laneSizes).sum();
+        this.unloadedLaneSizes = laneSizes;
+        this.loader = loader;
+        this.loaded = loaded;
+    }
+
+    synchronized Node addNode(Task task) {
+        load();
+        beforeChange();
+        Node node = lanes[task.getPriority().ordinal()].addLast(task);
+        size++;
+        modCount++;
+        return node;
+    }
+
+    // false if the node is no longer in this day, e.g. because another thread removed its task first
+    synchronized boolean unlink(Node node) {
+        for (Lane lane : lanes) {
+            if (node.lane == lane) {
+                beforeChange();
+                lane.unlink(node);
+                size--;
+                modCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void forEachNode(Consumer<Node> action) {
+        load();
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            lanes[i].forEach(action);
+        }
+    }
+
+    @Override
+    public synchronized Task get(int index) {
+        checkIndex(index);
+        load();
+
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            Lane lane = lanes[i];
+            if (index < lane.size)
+                return lane.get(index);
+            index -= lane.size;
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    // the task of the highest priority added first
+    synchronized Task removeFirstTask() {
+        checkIndex(0);
+        load();
+
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            Lane lane = lanes[i];
+            if (lane.size > 0) {
+                Node node = lane.node(0);
+                beforeChange();
+                lane.unlink(node);
+                size--;
+                modCount++;
+                return node.task;
+            }
+        }
+        throw new IndexOutOfBoundsException(0);
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    synchronized List<Task> snapshot() {
+        load();
+        List<Task> snapshot = new ArrayList<>(size);
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            lanes[i].copyTo(snapshot);
+        }
+        return snapshot;
+    }
+
+    // the tasks as they are now for a database snapshot, in O(1): the copy is made later, see Version
+    synchronized List<Task> version() {
+        if (frozen != null)
+            return frozen;
+        if (pendingVersion == null)
+            pendingVersion = new Version(this);
+        return pendingVersion;
+    }
+
+    // copies the tasks for the pending version, callers hold the lock
+    private List<Task> freeze() {
+        if (frozen == null)
+            frozen = Collections.unmodifiableList(snapshot());
+        if (pendingVersion != null) {
+            pendingVersion.tasks = frozen;
+            pendingVersion = null;
+        }
+        return frozen;
+    }
+
+    // a snapshot's version is copied before the first change after it, callers hold the lock
+    private void beforeChange() {
+        if (pendingVersion != null)
+            freeze();
+        frozen = null;
+    }
+
+    // tasks of one priority in insertion order
+    synchronized List<Task> snapshot(Priority priority) {
+        load();
+        Lane lane = lanes[priority.ordinal()];
+        List<Task> snapshot = new ArrayList<>(lane.size);
+        lane.copyTo(snapshot);
+        return snapshot;
+    }
+
+    // counted without loading the day
+    synchronized int size(Priority priority) {
+        if (loader != null)
+            return unloadedLaneSizes[priority.ordinal()];
+        return lanes[priority.ordinal()].size;
+    }
+
+    synchronized boolean isLoaded() {
+        return loader == null;
+    }
+
+    // a failed load leaves the day unloaded, so the next access reports the error again
+    synchronized void load() {
+        if (loader == null)
+            return;
+
+        List<Task> tasks = loader.get();
+        Consumer<Node> loaded = this.loaded;
+        loader = null;
+        this.loaded = null;
+        unloadedLaneSizes = null;
+        size = 0;
+        for (Task task : tasks) {
+            Node node = lanes[task.getPriority().ordinal()].addLast(task);
+            size++;
+            loaded.accept(node);
+        }
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized void close() {
+        closed = true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+
+    // the tasks of the day at one database snapshot, copied by whichever comes first: the first read of the version
+    // or the first change of the day after the snapshot
+    static final class Version extends AbstractList<Task> implements RandomAccess {
+        private final DayTasks day;
+        // set under the day's lock
+        private volatile List<Task> tasks;
+
+        private Version(DayTasks day) {
+            this.day = day;
+        }
+
+        @Override
+        public Task get(int index) {
+            return tasks().get(index);
+        }
+
+        @Override
+        public int size() {
+            return tasks().size();
+        }
+
+        private List<Task> tasks() {
+            List<Task> copied = tasks;
+            if (copied != null)
+                return copied;
+
+            synchronized (day) {
+                return tasks != null ? tasks : day.freeze();
+            }
+        }
+    }
+
+    // a task of the day, held in the lane of its priority while it is stored
+    static final class Node {
+        private final Task task;
+        private Lane lane;
+        // position in the lane's array
+        private int slot;
+
+        private Node(Task task) {
+            this.task = task;
+        }
+
+        Task getTask() {
+            return task;
+        }
+    }
+
+    /*
+     * Nodes in insertion order in an array. A removed node leaves a gap; gaps at the ends are dropped at once,
+     * the others stay until the array is full. Without gaps a task is read by its index in O(1). While there are
+     * gaps, a Fenwick tree counts the nodes per slot, so reads by index and unlinks take O(log n).
+     */
+    private static class Lane {
+        private Node[] nodes = new Node[4];
+        // slots from start to end hold the nodes and the gaps between them
+        private int start;
+        private int end;
+        private int size;
+        // nodes per slot as a Fenwick tree over the array, null while there are no gaps
+        private int[] liveSlots;
+
+        Node addLast(Task task) {
+            if (end == nodes.length)
+                compact(2 * size > nodes.length ? 2 * nodes.length : nodes.length);
+
+            Node node = new Node(task);
+            node.lane = this;
+            node.slot = end;
+            nodes[end++] = node;
+            size++;
+            if (liveSlots != null)
+                countSlot(node.slot, 1);
+            return node;
+        }
+
+        Task get(int index) {
+            return node(index).task;
+        }
+
+        Node node(int index) {
+            return liveSlots == null ? nodes[start + index] : nodes[findSlot(index)];
+        }
+
+        void unlink(Node node) {
+            nodes[node.slot] = null;
+            node.lane = null;
+            size--;
+            if (liveSlots != null)
+                countSlot(node.slot, -1);
+
+            while (start < end && nodes[start] == null) {
+                start++;
+            }
+            while (end > start && nodes[end - 1] == null) {
+                end--;
+            }
+
+            if (end - start == size)
+                liveSlots = null;
+            else if (liveSlots == null)
+                countSlots();
+        }
+
+        // builds the tree in O(n)
+        private void countSlots() {
+            liveSlots = new int[nodes.length + 1];
+            for (int i = 1; i < liveSlots.length; i++) {
+                if (nodes[i - 1] != null)
+                    liveSlots[i]++;
+                int parent = i + (i & -i);
+                if (parent < liveSlots.length)
+                    liveSlots[parent] += liveSlots[i];
+            }
+        }
+
+        private void countSlot(int slot, int delta) {
+            for (int i = slot + 1; i < liveSlots.length; i += i & -i) {
+                liveSlots[i] += delta;
+            }
+        }
+
+        // the slot of the node at the index, descending the tree
+        private int findSlot(int index) {
+            int slot = 0;
+            int remaining = index + 1;
+            for (int step = Integer.highestOneBit(liveSlots.length - 1); step > 0; step >>= 1) {
+                int next = slot + step;
+                if (next < liveSlots.length && liveSlots[next] < remaining) {
+                    slot = next;
+                    remaining -= liveSlots[next];
+                }
+            }
+            return slot;
+        }
+
+        void forEach(Consumer<Node> action) {
+            for (int i = start; i < end; i++) {
+                if (nodes[i] != null)
+                    action.accept(nodes[i]);
+            }
+        }
+
+        void copyTo(List<Task> tasks) {
+            for (int i = start; i < end; i++) {
+                if (nodes[i] != null)
+                    tasks.add(nodes[i].task);
+            }
+        }
+
+        // moves the nodes to the front of an array of the capacity, without gaps
+        private void compact(int capacity) {
+            Node[] compacted = capacity == nodes.length ? nodes : new Node[capacity];
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                Node node = nodes[i];
+                if (node != null) {
+                    node.slot = count;
+                    compacted[count++] = node;
+                }
+            }
+            if (compacted == nodes)
+                Arrays.fill(nodes, count, end, null);
+
+            nodes = compacted;
+            start = 0;
+            end = count;
+            liveSlots = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package data;
+
+import java.util.List;
+
+/*
+ * Older part of the history, kept outside the heap in immutable segments.
+ * Segments are first written as pending and only count as archived once committed,
+ * which happens after the file without those tasks was saved.
+ */
+public interface HistoryArchive {
+    // archived and pending tasks, oldest first
+    int size();
+
+    List<Task> read(int offset, int limit);
+
+    void prepare(List<Task> tasks);
+
+    void commit();
+
+    void abort();
+
+    // after a crash, keeps pending segments only if the loaded history no longer starts with them
+    void recover(List<Task> loadedHistory);
+
+    void clear();
+}
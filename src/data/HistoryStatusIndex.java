@@ -0,0 +1,43 @@
+package data;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+// positions in the whole history, archived tasks first, of the tasks of each status in history order
+class HistoryStatusIndex {
+    private final Map<Status, Positions> positions = new EnumMap<>(Status.class);
+
+    HistoryStatusIndex() {
+        for (Status status : Status.values()) {
+            positions.put(status, new Positions());
+        }
+    }
+
+    void add(Status status, int position) {
+        positions.get(status).add(position);
+    }
+
+    int count(Status status) {
+        return positions.get(status).size;
+    }
+
+    // at most limit positions from offset
+    int[] positions(Status status, int offset, int limit) {
+        Positions statusPositions = positions.get(status);
+        int start = Math.min(offset, statusPositions.size);
+        int end = (int) Math.min(statusPositions.size, (long) start + limit);
+        return Arrays.copyOfRange(statusPositions.items, start, end);
+    }
+
+    private static class Positions {
+        private int[] items = new int[16];
+        private int size;
+
+        void add(int position) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = position;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package data;
+
+import java.util.*;
+
+/*
+ * Immutable sorted map whose versions share structure: with and without copy only the O(log n) nodes on the path
+ * to the key, every other node belongs to the old and the new map alike. Kept balanced as an AVL tree,
+ * iterated in key order. Keys and values can't be null.
+ */
+final class PersistentSortedMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V> {
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null, 0);
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentSortedMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    // a new version in which the key maps to the value
+    PersistentSortedMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(value);
+        return new PersistentSortedMap<>(put(root, key, value), containsKey(key) ? size : size + 1);
+    }
+
+    // a new version without the key, this map itself if it doesn't hold the key
+    PersistentSortedMap<K, V> without(K key) {
+        return containsKey(key) ? new PersistentSortedMap<>(remove(root, key), size - 1) : this;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = find(key);
+        return node == null ? null : node.getValue();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<K, V> find(Object key) {
+        if (key == null)
+            return null;
+
+        K searched = (K) key;
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = searched.compareTo(node.getKey());
+            if (comparison == 0)
+                return node;
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null)
+            return new Node<>(key, value, null, null);
+
+        int comparison = key.compareTo(node.getKey());
+        if (comparison < 0)
+            return balance(node.getKey(), node.getValue(), put(node.left, key, value), node.right);
+        if (comparison > 0)
+            return balance(node.getKey(), node.getValue(), node.left, put(node.right, key, value));
+        return node.getValue() == value ? node : new Node<>(key, value, node.left, node.right);
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(Node<K, V> node, K key) {
+        int comparison = key.compareTo(node.getKey());
+        if (comparison < 0)
+            return balance(node.getKey(), node.getValue(), remove(node.left, key), node.right);
+        if (comparison > 0)
+            return balance(node.getKey(), node.getValue(), node.left, remove(node.right, key));
+
+        if (node.left == null)
+            return node.right;
+        if (node.right == null)
+            return node.left;
+
+        // replaced by the smallest node of its right subtree
+        Node<K, V> next = node.right;
+        while (next.left != null) {
+            next = next.left;
+        }
+        return balance(next.getKey(), next.getValue(), node.left, remove(node.right, next.getKey()));
+    }
+
+    // a node over the two subtrees, rotated once or twice if their heights differ by more than one
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right))
+                return new Node<>(left.getKey(), left.getValue(), left.left, new Node<>(key, value, left.right, right));
+            Node<K, V> middle = left.right;
+            return new Node<>(middle.getKey(), middle.getValue(),
+                    new Node<>(left.getKey(), left.getValue(), left.left, middle.left),
+                    new Node<>(key, value, middle.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left))
+                return new Node<>(right.getKey(), right.getValue(), new Node<>(key, value, left, right.left), right.right);
+            Node<K, V> middle = right.left;
+            return new Node<>(middle.getKey(), middle.getValue(),
+                    new Node<>(key, value, left, middle.left),
+                    new Node<>(right.getKey(), right.getValue(), middle.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<K, V> extends SimpleImmutableEntry<K, V> {
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            super(key, value);
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    // in order, with the path to the next node on a stack
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        private EntryIterator(Node<K, V> root) {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (path.isEmpty())
+                throw new NoSuchElementException();
+
+            Node<K, V> node = path.pop();
+            pushLeft(node.right);
+            return node;
+        }
+
+        private void pushLeft(Node<K, V> node) {
+            for (; node != null; node = node.left) {
+                path.push(node);
+            }
+        }
+    }
+}
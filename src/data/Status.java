@@ -1,5 +1,7 @@
 package data;
 
+import exception.InvalidStatusException;
+
 public enum Status {
     TO_DO(1),
     DONE(2),
@@ -11,6 +13,14 @@ public enum Status {
         this.value = value;
     }
 
+    public static Status createFromInt(int value) {
+        try {
+            return values()[value - 1];
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new InvalidStatusException("Invalid status number: " + value + ", try again.");
+        }
+    }
+
     @Override
     public String toString() {
         return value + " - " + name();
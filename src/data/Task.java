@@ -1,11 +1,22 @@
 package data;
 
+import exception.InvalidTaskTextException;
 import exception.TaskNameCantBeEmptyOrNull;
 
+import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.Objects;
 
 public class Task implements Comparable<Task>, Serializable {
+    // that of the first version, whose files still load
+    @Serial
+    private static final long serialVersionUID = -2152396945813467340L;
+    // the files, the journal and the replication frames separate fields with ';' and records with line breaks
+    private static final String FORBIDDEN_CHARACTERS = ";\n\r";
+
+    // given by the database when the task is first stored, 0 until then
+    private long id;
     private String name;
     private String description;
     private final LocalDate creationDate;
@@ -15,8 +26,15 @@ public class Task implements Comparable<Task>, Serializable {
 
     public Task(String name, String description, LocalDate creationDate,
                 LocalDate deadline, Status status, Priority priority) {
+        this(0, name, description, creationDate, deadline, status, priority);
+    }
+
+    // a task read back from a file keeps the id it was saved with
+    public Task(long id, String name, String description, LocalDate creationDate,
+                LocalDate deadline, Status status, Priority priority) {
+        this.id = id;
         setName(name);
-        this.description = description;
+        setDescription(description);
         this.creationDate = creationDate;
         this.deadline = deadline;
         this.status = status;
@@ -27,7 +45,9 @@ public class Task implements Comparable<Task>, Serializable {
         this(name, description, LocalDate.now(), deadline, Status.TO_DO, priority);
     }
 
+    // the copy keeps the id, so an edited task replacing the original is still found by it
     public Task(Task original) {
+        this.id = original.id;
         this.name = original.name;
         this.description = original.description;
         this.creationDate = original.creationDate;
@@ -36,6 +56,14 @@ public class Task implements Comparable<Task>, Serializable {
         this.priority = original.priority;
     }
 
+    public long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -43,13 +71,31 @@ public class Task implements Comparable<Task>, Serializable {
     public void setName(String name) {
         if (name == null || name.isEmpty())
             throw new TaskNameCantBeEmptyOrNull("Task name cannot be empty.");
+        checkText("name", name);
         this.name = name;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
     public void setDescription(String description) {
+        if (description != null)
+            checkText("description", description);
         this.description = description;
     }
 
+    private static void checkText(String field, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (FORBIDDEN_CHARACTERS.indexOf(text.charAt(i)) >= 0)
+                throw new InvalidTaskTextException("Task " + field + " cannot contain ';' or line breaks.");
+        }
+    }
+
+    public LocalDate getCreationDate() {
+        return creationDate;
+    }
+
     public LocalDate getDeadline() {
         return deadline;
     }
@@ -58,6 +104,10 @@ public class Task implements Comparable<Task>, Serializable {
         this.deadline = deadline;
     }
 
+    public Status getStatus() {
+        return status;
+    }
+
     public void setStatus(Status status) {
         this.status = status;
     }
@@ -76,11 +126,22 @@ public class Task implements Comparable<Task>, Serializable {
                 creationDate + ";" +
                 deadline + ";" +
                 status.name() + ";" +
-                priority.name() + ";";
+                priority.name() + ";" +
+                id + ";";
+    }
+
+    // compares all task data except the id and the status, which changes when the task leaves its date bucket
+    public boolean hasSameData(Task task) {
+        return name.equals(task.name) &&
+                Objects.equals(description, task.description) &&
+                Objects.equals(creationDate, task.creationDate) &&
+                Objects.equals(deadline, task.deadline) &&
+                priority == task.priority;
     }
 
     public String getFullInfo() {
-        return "Name: " + name + "\n" +
+        return "Id: " + id + "\n" +
+                "Name: " + name + "\n" +
                 "Description: " + description + "\n" +
                 "Deadline: " + deadline + "\n" +
                 "Priority: " + priority.name();
@@ -0,0 +1,118 @@
+package data;
+
+import java.util.Arrays;
+
+// open addressing hash table from task id to the node holding the task in its day, with linear probing
+// over a primitive key array, so a lookup neither boxes the id nor follows a bucket chain.
+// Ids are never 0, which marks a free slot. All access is serialized on the index.
+class TaskIdIndex {
+    private static final long FREE = 0;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private DayTasks.Node[] nodes = new DayTasks.Node[INITIAL_CAPACITY];
+    private int size;
+
+    synchronized DayTasks.Node get(long id) {
+        if (id == FREE)
+            return null;
+
+        for (int slot = slot(id, ids.length); ids[slot] != FREE; slot = next(slot)) {
+            if (ids[slot] == id)
+                return nodes[slot];
+        }
+        return null;
+    }
+
+    // false if another node already holds the id
+    synchronized boolean putIfAbsent(long id, DayTasks.Node node) {
+        if (id == FREE)
+            throw new IllegalArgumentException("Task id 0 can't be indexed.");
+        if (2 * (size + 1) > ids.length)
+            grow();
+
+        int slot = slot(id, ids.length);
+        for (; ids[slot] != FREE; slot = next(slot)) {
+            if (ids[slot] == id)
+                return false;
+        }
+        ids[slot] = id;
+        nodes[slot] = node;
+        size++;
+        return true;
+    }
+
+    // removes the id only while it still maps to the node of the given task
+    synchronized boolean remove(long id, Task task) {
+        if (id == FREE)
+            return false;
+
+        int slot = slot(id, ids.length);
+        for (; ids[slot] != FREE; slot = next(slot)) {
+            if (ids[slot] == id) {
+                if (nodes[slot].getTask() != task)
+                    return false;
+                deleteSlot(slot);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(ids, FREE);
+        Arrays.fill(nodes, null);
+        size = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // shifts the following entries of the probe run back instead of leaving a tombstone
+    private void deleteSlot(int slot) {
+        int free = slot;
+        for (int current = next(slot); ids[current] != FREE; current = next(current)) {
+            int home = slot(ids[current], ids.length);
+            // the entry may move into the free slot only if that slot lies between its home and its position
+            boolean movable = free <= current
+                    ? home <= free || home > current
+                    : home <= free && home > current;
+            if (movable) {
+                ids[free] = ids[current];
+                nodes[free] = nodes[current];
+                free = current;
+            }
+        }
+        ids[free] = FREE;
+        nodes[free] = null;
+    }
+
+    private void grow() {
+        long[] oldIds = ids;
+        DayTasks.Node[] oldNodes = nodes;
+        ids = new long[oldIds.length * 2];
+        nodes = new DayTasks.Node[oldIds.length * 2];
+
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] == FREE)
+                continue;
+            int slot = slot(oldIds[i], ids.length);
+            while (ids[slot] != FREE) {
+                slot = next(slot);
+            }
+            ids[slot] = oldIds[i];
+            nodes[slot] = oldNodes[i];
+        }
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (ids.length - 1);
+    }
+
+    // Fibonacci hashing: the top bits of the product spread sequential ids evenly over the table
+    private static int slot(long id, int capacity) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - Integer.numberOfTrailingZeros(capacity)));
+    }
+}
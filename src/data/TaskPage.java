@@ -0,0 +1,47 @@
+package data;
+
+import java.util.List;
+
+// one page of a longer task list, with enough position data to number the tasks and move between pages
+public class TaskPage {
+    private final List<Task> tasks;
+    private final int offset;
+    private final int total;
+    // number of the first task as shown in the menu, for tasks the position within its day
+    private final int firstNumber;
+
+    public TaskPage(List<Task> tasks, int offset, int total, int firstNumber) {
+        this.tasks = tasks;
+        this.offset = offset;
+        this.total = total;
+        this.firstNumber = firstNumber;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getFirstNumber() {
+        return firstNumber;
+    }
+
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    public boolean hasNext() {
+        return offset + tasks.size() < total;
+    }
+}
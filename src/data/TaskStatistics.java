@@ -0,0 +1,227 @@
+package data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+ * Counters updated as tasks are created, completed and failed, so no query has to scan the history.
+ * Lifetime counters are kept per priority, rolling ones per day for the last DAYS_KEPT days
+ * and per week (starting on Monday) for the last WEEKS_KEPT weeks. Each event is counted on the day it happens.
+ */
+public class TaskStatistics implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final int DAYS_KEPT = 28;
+    public static final int WEEKS_KEPT = 52;
+    public static final String PRIORITY = "PRIORITY";
+    public static final String DAY = "DAY";
+    public static final String WEEK = "WEEK";
+
+    private final Counters[] priorities = new Counters[Priority.values().length];
+    private final NavigableMap<LocalDate, Counters> days = new TreeMap<>();
+    private final NavigableMap<LocalDate, Counters> weeks = new TreeMap<>();
+
+    public TaskStatistics() {
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = new Counters();
+        }
+    }
+
+    public synchronized void recordCreated(Task task, LocalDate date) {
+        for (Counters counters : countersFor(task, date)) {
+            counters.created++;
+        }
+    }
+
+    // a bulk import looks up the day and week counters once instead of once per task
+    public synchronized void recordCreated(Collection<Task> tasks, LocalDate date) {
+        if (tasks.isEmpty())
+            return;
+
+        dayCounters(date).created += tasks.size();
+        weekCounters(date).created += tasks.size();
+        for (Task task : tasks) {
+            priorities[task.getPriority().ordinal()].created++;
+        }
+    }
+
+    public synchronized void recordCompleted(Task task, LocalDate date) {
+        long leadDays = Math.max(0, ChronoUnit.DAYS.between(task.getCreationDate(), date));
+        for (Counters counters : countersFor(task, date)) {
+            counters.completed++;
+            counters.leadDays += leadDays;
+        }
+    }
+
+    public synchronized void recordFailed(Task task, LocalDate date) {
+        for (Counters counters : countersFor(task, date)) {
+            counters.failed++;
+        }
+    }
+
+    public synchronized Counters getPriority(Priority priority) {
+        return priorities[priority.ordinal()].copy();
+    }
+
+    // the last days up to today, at most DAYS_KEPT of them
+    public synchronized Counters getLastDays(LocalDate today, int dayCount) {
+        Counters total = new Counters();
+        days.subMap(today.minusDays(Math.min(dayCount, DAYS_KEPT) - 1), true, today, true)
+                .values()
+                .forEach(total::add);
+        return total;
+    }
+
+    // the week containing the date
+    public synchronized Counters getWeek(LocalDate date) {
+        Counters counters = weeks.get(weekStart(date));
+        return counters == null ? new Counters() : counters.copy();
+    }
+
+    public synchronized void clear() {
+        for (Counters counters : priorities) {
+            counters.clear();
+        }
+        days.clear();
+        weeks.clear();
+    }
+
+    // every counter as a scope (PRIORITY, DAY or WEEK), a key (priority name or date) and its values
+    public synchronized void forEachRow(RowConsumer consumer) {
+        for (Priority priority : Priority.values()) {
+            consumer.accept(PRIORITY, priority.name(), priorities[priority.ordinal()]);
+        }
+        for (Map.Entry<LocalDate, Counters> entry : days.entrySet()) {
+            consumer.accept(DAY, entry.getKey().toString(), entry.getValue());
+        }
+        for (Map.Entry<LocalDate, Counters> entry : weeks.entrySet()) {
+            consumer.accept(WEEK, entry.getKey().toString(), entry.getValue());
+        }
+    }
+
+    // a separate copy of every counter, e.g. for a database snapshot
+    public synchronized TaskStatistics copy() {
+        TaskStatistics copy = new TaskStatistics();
+        forEachRow(copy::setRow);
+        return copy;
+    }
+
+    // restores one row written by forEachRow, unknown scopes and keys are rejected
+    public synchronized void setRow(String scope, String key, Counters counters) {
+        switch (scope) {
+            case PRIORITY -> priorities[Priority.valueOf(key).ordinal()] = counters.copy();
+            case DAY -> days.put(LocalDate.parse(key), counters.copy());
+            case WEEK -> weeks.put(LocalDate.parse(key), counters.copy());
+            default -> throw new IllegalArgumentException("Unknown statistics scope " + scope);
+        }
+    }
+
+    public synchronized int rowCount() {
+        return priorities.length + days.size() + weeks.size();
+    }
+
+    // the priority, day and week counters of an event
+    private Counters[] countersFor(Task task, LocalDate date) {
+        return new Counters[]{priorities[task.getPriority().ordinal()], dayCounters(date), weekCounters(date)};
+    }
+
+    // older days and weeks are dropped as new ones start
+    private Counters dayCounters(LocalDate date) {
+        Counters day = days.computeIfAbsent(date, key -> new Counters());
+        days.headMap(date.minusDays(DAYS_KEPT - 1)).clear();
+        return day;
+    }
+
+    private Counters weekCounters(LocalDate date) {
+        Counters week = weeks.computeIfAbsent(weekStart(date), key -> new Counters());
+        weeks.headMap(weekStart(date).minusWeeks(WEEKS_KEPT - 1)).clear();
+        return week;
+    }
+
+    private static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public interface RowConsumer {
+        void accept(String scope, String key, Counters counters);
+    }
+
+    public static class Counters implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private int created;
+        private int completed;
+        private int failed;
+        // days from creation to completion, summed over completed tasks
+        private long leadDays;
+
+        public Counters() {
+        }
+
+        public Counters(int created, int completed, int failed, long leadDays) {
+            this.created = created;
+            this.completed = completed;
+            this.failed = failed;
+            this.leadDays = leadDays;
+        }
+
+        public int getCreated() {
+            return created;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getLeadDays() {
+            return leadDays;
+        }
+
+        // share of ended tasks that were completed, 0 if none ended yet
+        public double getCompletionRate() {
+            int ended = completed + failed;
+            return ended == 0 ? 0 : (double) completed / ended;
+        }
+
+        public double getFailureRate() {
+            int ended = completed + failed;
+            return ended == 0 ? 0 : (double) failed / ended;
+        }
+
+        public double getAverageLeadDays() {
+            return completed == 0 ? 0 : (double) leadDays / completed;
+        }
+
+        private void add(Counters counters) {
+            created += counters.created;
+            completed += counters.completed;
+            failed += counters.failed;
+            leadDays += counters.leadDays;
+        }
+
+        private void clear() {
+            created = 0;
+            completed = 0;
+            failed = 0;
+            leadDays = 0;
+        }
+
+        private Counters copy() {
+            return new Counters(created, completed, failed, leadDays);
+        }
+    }
+}
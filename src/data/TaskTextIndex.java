@@ -0,0 +1,168 @@
+package data;
+
+import java.util.*;
+
+// trigram index over task names and descriptions, answers substring queries
+// by intersecting the posting sets of the query's trigrams; all access is serialized on the index.
+// The postings are only built on the first search, so loading a database doesn't pay for them. Once built they
+// cost about 700 bytes per task with 40 characters of name and description, one identity set entry per trigram.
+// Results come in a fixed order, as the posting sets have none.
+class TaskTextIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, Set<Task>> postings = new HashMap<>();
+    private final Set<Task> tasks = newTaskSet();
+    private boolean built;
+
+    synchronized void add(Task task) {
+        tasks.add(task);
+        if (built)
+            addPostings(task);
+    }
+
+    private void addPostings(Task task) {
+        for (long gram : gramsOf(task)) {
+            postings.computeIfAbsent(gram, key -> newTaskSet()).add(task);
+        }
+    }
+
+    synchronized void remove(Task task) {
+        if (!tasks.remove(task) || !built)
+            return;
+
+        for (long gram : gramsOf(task)) {
+            Set<Task> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(task);
+                if (posting.isEmpty())
+                    postings.remove(gram);
+            }
+        }
+    }
+
+    synchronized List<Task> findByName(String query) {
+        List<Task> found = new ArrayList<>();
+        for (Task task : candidates(query)) {
+            if (containsIgnoreCase(task.getName(), query))
+                found.add(task);
+        }
+
+        // the order of a scan over the days, whose tasks are ordered by priority and then added first
+        found.sort(Comparator.comparing(Task::getDeadline)
+                .thenComparing(Task::getPriority, Comparator.reverseOrder())
+                .thenComparingLong(Task::getId));
+        return found;
+    }
+
+    // best match first: exact name, name prefix, name substring, description substring,
+    // ties broken by higher priority, earlier deadline and then lower id
+    synchronized List<Task> findRanked(String query) {
+        List<Task> found = new ArrayList<>();
+        Map<Task, Integer> quality = new IdentityHashMap<>();
+
+        for (Task task : candidates(query)) {
+            int matchQuality = matchQuality(task, query);
+            if (matchQuality >= 0) {
+                found.add(task);
+                quality.put(task, matchQuality);
+            }
+        }
+
+        found.sort(Comparator.<Task>comparingInt(quality::get)
+                .thenComparing(Task::getPriority, Comparator.reverseOrder())
+                .thenComparing(Task::getDeadline)
+                .thenComparingLong(Task::getId));
+        return found;
+    }
+
+    private static int matchQuality(Task task, String query) {
+        String name = task.getName();
+
+        if (name.equalsIgnoreCase(query))
+            return 0;
+        if (name.regionMatches(true, 0, query, 0, query.length()))
+            return 1;
+        if (containsIgnoreCase(name, query))
+            return 2;
+        if (task.getDescription() != null && containsIgnoreCase(task.getDescription(), query))
+            return 3;
+        return -1;
+    }
+
+    // every task containing the query has all of its trigrams, so the smallest posting set is enough to check
+    private Collection<Task> candidates(String query) {
+        if (query.length() < GRAM_LENGTH)
+            return tasks;
+
+        if (!built) {
+            tasks.forEach(this::addPostings);
+            built = true;
+        }
+
+        Set<Task> smallest = null;
+        for (long gram : gramsOf(query)) {
+            Set<Task> posting = postings.get(gram);
+            if (posting == null)
+                return List.of();
+            if (smallest == null || posting.size() < smallest.size())
+                smallest = posting;
+        }
+        return smallest;
+    }
+
+    // distinct trigrams of the name and description, sorted
+    private static long[] gramsOf(Task task) {
+        String description = task.getDescription() == null ? "" : task.getDescription();
+        long[] grams = new long[gramCount(task.getName()) + gramCount(description)];
+
+        int count = addGrams(task.getName(), grams, 0);
+        addGrams(description, grams, count);
+        return distinct(grams);
+    }
+
+    private static long[] gramsOf(String text) {
+        long[] grams = new long[gramCount(text)];
+        addGrams(text, grams, 0);
+        return distinct(grams);
+    }
+
+    private static int gramCount(String text) {
+        return Math.max(0, text.length() - GRAM_LENGTH + 1);
+    }
+
+    private static int addGrams(String text, long[] grams, int start) {
+        int count = start;
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams[count++] = gram(text, i);
+        }
+        return count;
+    }
+
+    private static long[] distinct(long[] grams) {
+        Arrays.sort(grams);
+        int count = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1])
+                grams[count++] = grams[i];
+        }
+        return Arrays.copyOf(grams, count);
+    }
+
+    private static long gram(String text, int start) {
+        return (long) Character.toLowerCase(text.charAt(start)) << 32 |
+                (long) Character.toLowerCase(text.charAt(start + 1)) << 16 |
+                Character.toLowerCase(text.charAt(start + 2));
+    }
+
+    private static boolean containsIgnoreCase(String text, String query) {
+        for (int i = 0; i + query.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length()))
+                return true;
+        }
+        return false;
+    }
+
+    private static Set<Task> newTaskSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,7 @@
+package exception;
+
+public class InvalidTaskTextException extends RuntimeException {
+    public InvalidTaskTextException(String message) {
+        super(message);
+    }
+}
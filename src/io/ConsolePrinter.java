@@ -2,6 +2,7 @@ package io;
 
 import controller.Option;
 import data.Task;
+import data.TaskPage;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -11,6 +12,12 @@ public class ConsolePrinter {
     private static final int QUICK_MENU_END = 5;
     private static final String PROMPT_CHARACTER = ">";
     private static final String HORIZONTAL_SEPARATOR = "-".repeat(7);
+    private static final String HEADER_ROW = String.format("%-3s %-25s %-35s %-12s %-12s\n",
+            "No", "Name", "Description", "Deadline", "Priority");
+    private static final int NAME_LENGTH = 20;
+    private static final int NAME_WIDTH = NAME_LENGTH + 3;
+    private static final int DESCRIPTION_LENGTH = 30;
+    private static final int DESCRIPTION_WIDTH = DESCRIPTION_LENGTH + 3;
 
     public void print(String line) {
         System.out.print(line);
@@ -43,34 +50,107 @@ public class ConsolePrinter {
         return builder.toString();
     }
 
-    private void printHeaderRow() {
-        String indexLabel = "No";
-        String nameLabel = "Name";
-        String descriptionLabel = "Description";
-        String deadlineLabel = "Deadline";
-        String priorityLabel = "Priority";
+    public void printTasksWithIndex(Collection<Task> tasks) {
+        StringBuilder builder = new StringBuilder();
+        appendTasks(builder, tasks, 1);
+        print(builder.toString());
+    }
+
+    // the whole page is rendered first and written to the console at once
+    public void printTaskPage(TaskPage page, boolean groupByDate) {
+        StringBuilder builder = new StringBuilder();
+
+        if (groupByDate) {
+            LocalDate date = null;
+            int number = page.getFirstNumber();
+            for (Task task : page.getTasks()) {
+                if (!task.getDeadline().equals(date)) {
+                    if (date != null)
+                        number = 1;
+                    date = task.getDeadline();
+                    appendDateHeader(builder, date);
+                    builder.append(HEADER_ROW);
+                }
+                appendRow(builder, number++, task);
+            }
+        } else {
+            appendTasks(builder, page.getTasks(), page.getFirstNumber());
+        }
 
-        printLine(String.format("%-3s %-25s %-35s %-12s %-12s",
-                indexLabel, nameLabel, descriptionLabel, deadlineLabel, priorityLabel));
+        builder.append("\n").append(HORIZONTAL_SEPARATOR)
+                .append(page.getOffset() + 1).append('-').append(page.getOffset() + page.getTasks().size())
+                .append(" of ").append(page.getTotal()).append("\n");
+        print(builder.toString());
     }
 
-    public void printAllTasks(Map<LocalDate, List<Task>> tasks) {
-        Set<Map.Entry<LocalDate, List<Task>>> entries = tasks.entrySet();
+    // the days of the agenda that have tasks, each rendered from one snapshot of the day
+    public void printAgenda(String title, Map<LocalDate, List<Task>> days) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(HORIZONTAL_SEPARATOR).append(title).append('\n');
+        int total = 0;
+
+        for (Map.Entry<LocalDate, List<Task>> day : days.entrySet()) {
+            List<Task> tasks = List.copyOf(day.getValue());
+            if (tasks.isEmpty())
+                continue;
 
-        for (Map.Entry<LocalDate, List<Task>> entry : entries) {
-            printLine("");
-            printLine(HORIZONTAL_SEPARATOR + "Tasks of " + entry.getKey());
-            printTasksWithIndex(entry.getValue());
+            appendDateHeader(builder, day.getKey());
+            appendTasks(builder, tasks, 1);
+            total += tasks.size();
         }
+        builder.append('\n').append(HORIZONTAL_SEPARATOR).append(total).append(" task(s)\n");
+        print(builder.toString());
     }
 
-    public void printTasksWithIndex(Collection<Task> tasks) {
-        printHeaderRow();
+    // one line per day, e.g. "2026-10-19 MONDAY        3"
+    public void printTaskCounts(Map<LocalDate, Integer> counts) {
+        StringBuilder builder = new StringBuilder();
+        int total = 0;
 
-        int index = 1;
+        for (Map.Entry<LocalDate, Integer> day : counts.entrySet()) {
+            builder.append(day.getKey()).append(' ');
+            appendPadded(builder, day.getKey().getDayOfWeek().name(), 10, false);
+            appendPadded(builder, day.getValue().toString(), 5, true).append('\n');
+            total += day.getValue();
+        }
+        builder.append(HORIZONTAL_SEPARATOR).append(total).append(" task(s) on ").append(counts.size())
+                .append(" day(s)\n");
+        print(builder.toString());
+    }
+
+    private void appendDateHeader(StringBuilder builder, LocalDate date) {
+        builder.append('\n').append(HORIZONTAL_SEPARATOR).append("Tasks of ").append(date).append('\n');
+    }
+
+    private void appendTasks(StringBuilder builder, Collection<Task> tasks, int firstNumber) {
+        builder.append(HEADER_ROW);
+
+        int number = firstNumber;
         for (Task task : tasks) {
-            String formattedIndex = String.format("%2s", index++);
-            printLine(formattedIndex + ". " + task);
+            appendRow(builder, number++, task);
         }
     }
+
+    // same layout as Task.toString, padded by hand instead of parsing a format string per row
+    private void appendRow(StringBuilder builder, int number, Task task) {
+        appendPadded(builder, Integer.toString(number), 2, true).append(". ");
+        appendPadded(builder, shorten(task.getName(), NAME_LENGTH), NAME_WIDTH, false).append(" | ");
+        appendPadded(builder, shorten(task.getDescription(), DESCRIPTION_LENGTH), DESCRIPTION_WIDTH, false).append(" | ");
+        appendPadded(builder, task.getDeadline().toString(), 10, false).append(" | ");
+        appendPadded(builder, task.getPriority().name(), 10, false).append('\n');
+    }
+
+    private static String shorten(String text, int length) {
+        return text.length() > length ? text.substring(0, length) + "..." : text;
+    }
+
+    private static StringBuilder appendPadded(StringBuilder builder, String text, int width, boolean alignRight) {
+        int padding = Math.max(0, width - text.length());
+        if (!alignRight)
+            builder.append(text);
+        builder.repeat(' ', padding);
+        if (alignRight)
+            builder.append(text);
+        return builder;
+    }
 }
@@ -1,7 +1,9 @@
 package io;
 
 import exception.InvalidPriorityException;
+import exception.InvalidStatusException;
 import data.Priority;
+import data.Status;
 import data.Task;
 import io.file.FileManagerType;
 
@@ -106,6 +108,36 @@ public class DataReader {
         return taskData;
     }
 
+    public Priority readAndSelectPriority() {
+        printer.printLine("Priority");
+        printAllPriorities();
+        printer.promptCharacter();
+        return readPriority();
+    }
+
+    // the history holds only ended and failed tasks
+    public Status readAndSelectHistoryStatus() {
+        printer.printLine("Status");
+        printer.printLine(Status.DONE.toString());
+        printer.printLine(Status.FAILED.toString());
+        printer.promptCharacter();
+
+        Status status = null;
+        do {
+            try {
+                status = Status.createFromInt(getInt());
+                if (status == Status.TO_DO) {
+                    printer.printLine("Tasks in the history are either DONE or FAILED, try again.");
+                    status = null;
+                }
+            } catch (InvalidStatusException e) {
+                printer.printLine(e.getMessage());
+            }
+        } while (status == null);
+
+        return status;
+    }
+
     private Priority readPriority() {
         boolean priorityOk = false;
         Priority priority = null;
@@ -0,0 +1,65 @@
+package io.file;
+
+import exception.FileWriteException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// writes a file through a temp file, which replaces the file only once it is completely on disk,
+// so an interrupted save leaves the previous version in place
+class AtomicFileWriter {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFileWriter() {
+    }
+
+    static void write(Path target, Content content) {
+        Path temp = tempPath(target);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            content.writeTo(out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            deleteTemp(temp);
+            throw new FileWriteException("Error while writing data to " + target);
+        }
+        replace(temp, target);
+    }
+
+    static Path tempPath(Path target) {
+        return target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+    }
+
+    // for files written through their own channel, which must be forced before
+    static void replace(Path temp, Path target) {
+        try {
+            WrittenBytes.add(Files.size(temp));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteTemp(temp);
+            throw new FileWriteException("Error while replacing " + target);
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            // the next save overwrites it anyway
+        }
+    }
+}
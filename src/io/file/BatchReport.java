@@ -0,0 +1,32 @@
+package io.file;
+
+import java.time.Duration;
+
+// how many records a batch import or export moved and how fast
+public class BatchReport {
+    private final int records;
+    private final Duration duration;
+
+    BatchReport(int records, Duration duration) {
+        this.records = records;
+        this.duration = duration;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public double getRecordsPerSecond() {
+        long nanos = Math.max(1, duration.toNanos());
+        return records * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d tasks in %d ms (%.0f tasks/s)", records, duration.toMillis(), getRecordsPerSecond());
+    }
+}
@@ -0,0 +1,234 @@
+package io.file;
+
+import data.Database;
+import data.DatabaseChanges;
+import data.DatabaseSnapshot;
+import data.Task;
+import exception.FileReadException;
+import exception.FileWriteException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/*
+ * One csv file per date in days/<date>.csv, the history in chunks of HISTORY_CHUNK tasks in
+ * history-<chunk>.csv and the counters in statistics.csv. A save writes only the dates, history chunks
+ * and counters changed since the previous save, so its cost follows the size of the change and not
+ * the size of the database. Every file is replaced atomically, and the history is written before the
+ * dates, so a task moved from its date to the history is never missing from both after a crash.
+ */
+public class BucketFileManager implements FileManager {
+    public static final String DIRECTORY = "src/db/buckets";
+    private static final String DAYS_DIRECTORY = "days";
+    private static final String SUFFIX = ".csv";
+    private static final String HISTORY_PREFIX = "history-";
+    private static final String STATISTICS_FILE = "statistics.csv";
+    private static final int HISTORY_CHUNK = 500;
+
+    private final Path directory;
+    private final Path daysDirectory;
+
+    public BucketFileManager() {
+        this(DIRECTORY);
+    }
+
+    public BucketFileManager(String directory) {
+        this.directory = Path.of(directory);
+        this.daysDirectory = this.directory.resolve(DAYS_DIRECTORY);
+    }
+
+    @Override
+    public String getLocation() {
+        return directory.toString();
+    }
+
+    @Override
+    public Database readFromFile() {
+        if (!Files.isDirectory(directory))
+            throw new FileReadException("Directory " + directory + " not found.");
+
+        Database database = new Database();
+        // tasks saved before task ids get theirs while loading, their days and history chunks must be saved again
+        Set<LocalDate> daysWithNewIds = new HashSet<>();
+        for (LocalDate date : listDays()) {
+            List<Task> tasks = readTasks(dayPath(date));
+            if (hasTaskWithoutId(tasks))
+                daysWithNewIds.add(date);
+            database.addTasks(tasks);
+        }
+        int historyWithNewIdsFrom = DatabaseChanges.HISTORY_UNCHANGED;
+        int historySize = 0;
+        for (long chunk : listHistoryChunks()) {
+            List<Task> tasks = readTasks(historyPath(chunk));
+            if (hasTaskWithoutId(tasks))
+                historyWithNewIdsFrom = Math.min(historyWithNewIdsFrom, historySize);
+            tasks.forEach(database::addToHistory);
+            historySize += tasks.size();
+        }
+        readStatistics(database);
+
+        // everything else loaded is already on disk, the statistics file holds the last id given
+        database.takeChanges();
+        if (!daysWithNewIds.isEmpty() || historyWithNewIdsFrom != DatabaseChanges.HISTORY_UNCHANGED)
+            database.restoreChanges(new DatabaseChanges(daysWithNewIds, historyWithNewIdsFrom, true));
+        return database;
+    }
+
+    private static boolean hasTaskWithoutId(List<Task> tasks) {
+        return tasks.stream().anyMatch(task -> task.getId() == 0);
+    }
+
+    @Override
+    public synchronized void saveToFile(Database database) {
+        // changes are taken before the snapshot, so a change made in between is in the snapshot
+        // and still marked for the next save, instead of marked as saved but missing from the snapshot
+        DatabaseChanges changes = database.takeChanges();
+        DatabaseSnapshot snapshot = database.snapshot();
+
+        try {
+            createDirectories();
+            if (changes.isHistoryChanged())
+                writeHistory(snapshot.getTasksHistory(), changes.getHistoryFrom());
+            for (LocalDate date : changes.getDays()) {
+                writeDay(date, snapshot.getTasks().get(date));
+            }
+            if (changes.isStatisticsChanged()) {
+                byte[] statistics = CsvFileManager.encodeStatistics(snapshot);
+                AtomicFileWriter.write(directory.resolve(STATISTICS_FILE), out -> out.write(statistics));
+            }
+        } catch (FileWriteException e) {
+            // whatever was not written is saved by the next attempt
+            database.restoreChanges(changes);
+            throw e;
+        }
+    }
+
+    // rewrites the chunks from the one holding the first change, and drops chunks the history no longer fills
+    private void writeHistory(List<Task> history, int changedFrom) {
+        int chunks = (history.size() + HISTORY_CHUNK - 1) / HISTORY_CHUNK;
+
+        for (int chunk = changedFrom / HISTORY_CHUNK; chunk < chunks; chunk++) {
+            int start = chunk * HISTORY_CHUNK;
+            writeTasks(historyPath(chunk), history.subList(start, Math.min(history.size(), start + HISTORY_CHUNK)));
+        }
+        for (long chunk : listHistoryChunks()) {
+            if (chunk >= chunks)
+                delete(historyPath(chunk));
+        }
+    }
+
+    private void writeDay(LocalDate date, List<Task> tasks) {
+        if (tasks == null || tasks.isEmpty())
+            delete(dayPath(date));
+        else
+            writeTasks(dayPath(date), tasks);
+    }
+
+    private void writeTasks(Path path, List<Task> tasks) {
+        AtomicFileWriter.write(path, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            for (Task task : tasks) {
+                writer.write(task.toCsv());
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+        });
+    }
+
+    private List<Task> readTasks(Path path) {
+        List<Task> tasks = new ArrayList<>();
+
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            CsvTaskScanner scanner = new CsvTaskScanner(reader, path.toString());
+            while (scanner.hasMoreLines()) {
+                tasks.add(scanner.readTask());
+            }
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + path);
+        }
+        return tasks;
+    }
+
+    // a database saved before its counters ever changed has no statistics file yet
+    private void readStatistics(Database database) {
+        Path path = directory.resolve(STATISTICS_FILE);
+        if (!Files.exists(path))
+            return;
+
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            CsvFileManager.readStatisticsFromFile(new CsvTaskScanner(reader, path.toString()), database);
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + path);
+        }
+    }
+
+    private List<LocalDate> listDays() {
+        try {
+            return listNames(daysDirectory, "").stream()
+                    .map(LocalDate::parse)
+                    .toList();
+        } catch (DateTimeParseException e) {
+            throw new FileReadException("Unknown file in " + daysDirectory + ": " + e.getParsedString() + SUFFIX);
+        }
+    }
+
+    private List<Long> listHistoryChunks() {
+        try {
+            List<Long> chunks = new ArrayList<>(listNames(directory, HISTORY_PREFIX).stream()
+                    .map(Long::parseLong)
+                    .toList());
+            chunks.sort(null);
+            return chunks;
+        } catch (NumberFormatException e) {
+            throw new FileReadException("Unknown history file in " + directory);
+        }
+    }
+
+    // names of the csv files with the prefix, without the prefix and suffix, temp files are skipped
+    private List<String> listNames(Path listedDirectory, String prefix) {
+        if (!Files.isDirectory(listedDirectory))
+            return List.of();
+
+        try (Stream<Path> files = Files.list(listedDirectory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(SUFFIX))
+                    .map(name -> name.substring(prefix.length(), name.length() - SUFFIX.length()))
+                    .toList();
+        } catch (IOException e) {
+            throw new FileReadException("Error while listing files in " + listedDirectory);
+        }
+    }
+
+    private void createDirectories() {
+        try {
+            Files.createDirectories(daysDirectory);
+        } catch (IOException e) {
+            throw new FileWriteException("Error while creating " + daysDirectory);
+        }
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new FileWriteException("Error while deleting " + path);
+        }
+    }
+
+    private Path dayPath(LocalDate date) {
+        return daysDirectory.resolve(date + SUFFIX);
+    }
+
+    private Path historyPath(long chunk) {
+        return directory.resolve(HISTORY_PREFIX + chunk + SUFFIX);
+    }
+}
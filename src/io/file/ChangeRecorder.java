@@ -0,0 +1,165 @@
+package io.file;
+
+import data.Task;
+import service.TaskListener;
+import service.TaskService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+ * Turns every TaskService change into a record line OPERATION;task fields, which replay applies to another
+ * TaskService in the same order. The journal writes the records to its files, replication sends them to followers.
+ * Additions, endings and failures end with the day the statistics counted them on, so a replay on a later day
+ * counts them on the same one.
+ */
+public abstract class ChangeRecorder implements TaskListener {
+    private static final String ADD = "ADD";
+    private static final String ADD_SILENTLY = "ADD_SILENTLY";
+    private static final String REMOVE = "REMOVE";
+    private static final String END = "END";
+    private static final String FAIL = "FAIL";
+    private static final String CLEAR_HISTORY = "CLEAR_HISTORY";
+    private static final String CLEAR_STATISTICS = "CLEAR_STATISTICS";
+
+    // one change, which holds several lines for a bulk import
+    protected abstract void record(String records);
+
+    @Override
+    public void taskAdded(Task task, LocalDate date) {
+        record(ADD, task, date);
+    }
+
+    // one record for the whole import
+    @Override
+    public void tasksAdded(List<Task> tasks, LocalDate date) {
+        StringBuilder records = new StringBuilder();
+        for (Task task : tasks) {
+            if (!records.isEmpty())
+                records.append(System.lineSeparator());
+            records.append(ADD).append(';').append(task.toCsv()).append(date);
+        }
+        if (!records.isEmpty())
+            record(records.toString());
+    }
+
+    @Override
+    public void taskAddedSilently(Task task) {
+        record(ADD_SILENTLY, task);
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        record(REMOVE, task);
+    }
+
+    @Override
+    public void taskEnded(Task task, LocalDate date) {
+        record(END, task, date);
+    }
+
+    @Override
+    public void taskFailed(Task task, LocalDate date) {
+        record(FAIL, task, date);
+    }
+
+    @Override
+    public void historyCleared() {
+        record(CLEAR_HISTORY);
+    }
+
+    @Override
+    public void statisticsCleared() {
+        record(CLEAR_STATISTICS);
+    }
+
+    private void record(String operation, Task task) {
+        record(operation + ";" + task.toCsv());
+    }
+
+    private void record(String operation, Task task, LocalDate date) {
+        record(operation + ";" + task.toCsv() + date);
+    }
+
+    // applies every record the reader holds, source names it in error messages
+    public static void replay(Reader reader, String source, TaskService taskService) throws IOException {
+        replay(new CsvTaskScanner(reader, source), taskService);
+    }
+
+    // the records of one change
+    public static void replay(String records, String source, TaskService taskService) {
+        try {
+            replay(new CsvTaskScanner(new StringReader(records), source, records.length() + 1), taskService);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void replay(CsvTaskScanner scanner, TaskService taskService) throws IOException {
+        while (scanner.hasMoreLines()) {
+            applyRecord(scanner, taskService);
+        }
+    }
+
+    private static void applyRecord(CsvTaskScanner scanner, TaskService taskService) throws IOException {
+        String operation = scanner.readString();
+
+        switch (operation) {
+            case ADD -> {
+                Task task = scanner.readTaskFields();
+                // records written before the dates count the task on the day it was created
+                taskService.addTask(task, readDate(scanner, task.getCreationDate()));
+            }
+            case ADD_SILENTLY -> taskService.addTaskSilently(scanner.readTask());
+            case REMOVE -> taskService.removeTask(findStoredTask(scanner, scanner.readTask(), taskService));
+            // records written before the dates count endings and failures on the day they are replayed
+            case END -> {
+                Task task = findStoredTask(scanner, scanner.readTaskFields(), taskService);
+                taskService.endTask(task, readDate(scanner, LocalDate.now()));
+            }
+            case FAIL -> {
+                Task task = findStoredTask(scanner, scanner.readTaskFields(), taskService);
+                taskService.failTask(task, readDate(scanner, LocalDate.now()));
+            }
+            case CLEAR_HISTORY -> {
+                scanner.endLine();
+                taskService.clearHistory();
+            }
+            case CLEAR_STATISTICS -> {
+                scanner.endLine();
+                taskService.clearStatistics();
+            }
+            default -> throw scanner.error("unknown journal operation " + operation);
+        }
+    }
+
+    // the last field of the line, defaultDate if the record has none
+    private static LocalDate readDate(CsvTaskScanner scanner, LocalDate defaultDate) throws IOException {
+        LocalDate date = scanner.readOptionalDate();
+        scanner.endLine();
+        return date == null ? defaultDate : date;
+    }
+
+    // by id, records written before task ids by their data
+    private static Task findStoredTask(CsvTaskScanner scanner, Task task, TaskService taskService) {
+        if (task.getId() != 0) {
+            Task storedTask = taskService.getTaskById(task.getId());
+            if (storedTask == null)
+                throw scanner.error("task " + task.getId() + " is not stored");
+            return storedTask;
+        }
+
+        List<Task> tasks = taskService.findTasksByDate(task.getDeadline());
+        if (tasks == null)
+            throw scanner.error("no tasks stored for " + task.getDeadline());
+
+        return tasks.stream()
+                .filter(task::hasSameData)
+                .findFirst()
+                .orElseThrow(() -> scanner.error("task " + task.getName() + " is not stored"));
+    }
+}
@@ -0,0 +1,81 @@
+package io.file;
+
+import data.Task;
+import exception.FileWriteException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Exports tasks as task lines that CsvBatchImporter reads back. Every date is encoded as its own chunk
+ * on the common fork-join pool and written at its offset in the file, so chunks are written concurrently
+ * while the file keeps the date order.
+ */
+public class CsvBatchExporter {
+    private final String fileName;
+
+    public CsvBatchExporter(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public BatchReport export(Map<LocalDate, List<Task>> tasks) {
+        long start = System.nanoTime();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        List<ForkJoinTask<byte[]>> encodedDays = new ArrayList<>();
+        int records = 0;
+        for (List<Task> dayTasks : tasks.values()) {
+            List<Task> snapshot = List.copyOf(dayTasks);
+            records += snapshot.size();
+            encodedDays.add(pool.submit(() -> encode(snapshot)));
+        }
+
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<ForkJoinTask<?>> writes = new ArrayList<>();
+            long position = 0;
+            for (ForkJoinTask<byte[]> encodedDay : encodedDays) {
+                byte[] chunk = encodedDay.join();
+                long chunkPosition = position;
+                writes.add(pool.submit(() -> write(channel, chunk, chunkPosition)));
+                position += chunk.length;
+            }
+            writes.forEach(ForkJoinTask::join);
+        } catch (IOException e) {
+            throw new FileWriteException("Error while writing data to " + fileName);
+        }
+
+        return new BatchReport(records, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static byte[] encode(List<Task> tasks) {
+        StringBuilder builder = new StringBuilder();
+        for (Task task : tasks) {
+            builder.append(task.toCsv()).append(System.lineSeparator());
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // positional writes don't move the channel position, so several threads can write at once
+    private void write(FileChannel channel, byte[] chunk, long position) {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new FileWriteException("Error while writing data to " + fileName);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.file;
+
+import data.Task;
+import exception.FileReadException;
+import service.TaskService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Imports a file of task lines (name;description;creationDate;deadline;status;priority;), e.g. a dump
+ * from another system. The file is split into chunks that end on line breaks, the chunks are parsed
+ * in parallel on the common fork-join pool and the tasks are added in one batch, in file order.
+ */
+public class CsvBatchImporter {
+    private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final String fileName;
+
+    public CsvBatchImporter(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public BatchReport importInto(TaskService taskService) {
+        long start = System.nanoTime();
+        List<Task> tasks = readTasks();
+        taskService.addTasks(tasks);
+        return new BatchReport(tasks.size(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    public List<Task> readTasks() {
+        byte[] content = readContent();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        List<ForkJoinTask<List<Task>>> chunks = new ArrayList<>();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, content.length / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        for (int chunkStart = 0; chunkStart < content.length; ) {
+            int chunkEnd = lineEnd(content, Math.min(content.length, chunkStart + chunkSize));
+            int from = chunkStart;
+            chunks.add(pool.submit(() -> parseChunk(content, from, chunkEnd)));
+            chunkStart = chunkEnd;
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        for (ForkJoinTask<List<Task>> chunk : chunks) {
+            tasks.addAll(chunk.join());
+        }
+        return tasks;
+    }
+
+    private byte[] readContent() {
+        try {
+            return Files.readAllBytes(Path.of(fileName));
+        } catch (NoSuchFileException e) {
+            throw new FileReadException("File " + fileName + " not found.");
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + fileName);
+        }
+    }
+
+    // position after the next line break, so no line and no UTF-8 character is split between chunks
+    private static int lineEnd(byte[] content, int position) {
+        while (position < content.length && content[position - 1] != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    private List<Task> parseChunk(byte[] content, int start, int end) {
+        List<Task> tasks = new ArrayList<>();
+        String source = fileName + " (chunk from byte " + start + ")";
+
+        try (Reader reader = new InputStreamReader(
+                new ByteArrayInputStream(content, start, end - start), StandardCharsets.UTF_8)) {
+            CsvTaskScanner scanner = new CsvTaskScanner(reader, source);
+            while (scanner.hasMoreLines()) {
+                tasks.add(scanner.readTask());
+            }
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + source);
+        }
+        return tasks;
+    }
+}
@@ -1,124 +1,414 @@
 package io.file;
 
-import data.Priority;
-import data.Status;
 import data.Task;
 import data.Database;
+import data.DatabaseSnapshot;
+import data.TaskStatistics;
+import data.TaskStatistics.Counters;
 import exception.FileReadException;
 import exception.FileWriteException;
 
 import java.io.*;
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
 
+/*
+ * Sections: tasks, HISTORY line and history, STATISTICS line and statistics, then an index line
+ * CHECKSUMS;offset;length;crc32c; for each of the three sections. Files without the index are
+ * read as before, without verification.
+ */
 public class CsvFileManager implements FileManager {
     public static final String FILE_NAME = "src/db/database.csv";
     private static final String HISTORY_SEPARATOR = "HISTORY";
     private static final String STATISTICS_SEPARATOR = "STATISTICS";
+    private static final String CHECKSUMS = "CHECKSUMS";
+    private static final String[] SECTIONS = {"tasks", HISTORY_SEPARATOR, STATISTICS_SEPARATOR};
+
+    private final String fileName;
+    // whether parsed sections are kept in TaskSectionCache for the next read of the same content
+    private final boolean cacheSections;
+
+    public CsvFileManager() {
+        this(FILE_NAME);
+    }
+
+    public CsvFileManager(String fileName) {
+        this(fileName, false);
+    }
+
+    public CsvFileManager(String fileName, boolean cacheSections) {
+        this.fileName = fileName;
+        this.cacheSections = cacheSections;
+    }
+
+    @Override
+    public String getLocation() {
+        return fileName;
+    }
 
     @Override
     public Database readFromFile() {
-        Database database = new Database();
-        AtomicLong lineNumber = new AtomicLong(0);
-
-        try (
-                FileReader fileReader = new FileReader(FILE_NAME);
-                BufferedReader reader = new BufferedReader(fileReader)
-        ){
-            readTasksFromFile(reader, database, lineNumber);
-            readHistoryFromFile(reader, database, lineNumber);
-            readStatisticsFromFile(reader, database, lineNumber);
-        } catch (FileNotFoundException e) {
-            throw new FileReadException("File " + FILE_NAME + " not found.");
+        // only the end of the file is read for the index, the rest is streamed, so the file may be of any size
+        try (FileChannel channel = FileChannel.open(Path.of(fileName))) {
+            long tailOffset = Math.max(0, channel.size() - SectionIndex.TAIL_LENGTH);
+            ByteBuffer tail = ByteBuffer.allocate((int) (channel.size() - tailOffset));
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, tailOffset + tail.position()) < 0)
+                    throw new EOFException();
+            }
+            SectionIndex index = SectionIndex.find(tail.array(), tailOffset, fileName);
+            return read(Channels.newInputStream(channel), index);
+        } catch (NoSuchFileException e) {
+            throw new FileReadException("File " + fileName + " not found.");
         } catch (IOException e) {
-            throw new FileReadException("Error while reading data from " + FILE_NAME);
-        } catch (DateTimeParseException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
-            throw new FileReadException("Incorrect data in " + FILE_NAME + " in line " + lineNumber.get() + ".");
+            throw new FileReadException("Error while reading data from " + fileName);
         }
+    }
 
+    // content in the file format, e.g. a snapshot sent by a replication primary, errors name it by the file name
+    public Database read(byte[] content) {
+        try {
+            return read(new ByteArrayInputStream(content), SectionIndex.find(content, 0, fileName));
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + fileName);
+        }
+    }
+
+    private Database read(InputStream in, SectionIndex index) throws IOException {
+        Database database = new Database();
+        if (index == null)
+            readUnverified(in, database);
+        else
+            readVerified(in, index, database);
         return database;
     }
 
-    private void readTasksFromFile(BufferedReader reader, Database database, AtomicLong lineNumber) throws IOException {
-        reader.lines()
-                .takeWhile(line -> !line.equals(HISTORY_SEPARATOR)) // read until HISTORY_SEPARATOR
-                .peek(line -> lineNumber.incrementAndGet())
-                .map(this::createTaskFromString)
-                .forEach(database::addTask);
+    private void readUnverified(InputStream in, Database database) throws IOException {
+        CsvTaskScanner scanner = scanner(in, fileName);
+        readTasksFromFile(scanner, database);
+        readHistoryFromFile(scanner, database);
+        readStatisticsFromFile(scanner, database);
     }
 
-    private void readHistoryFromFile(BufferedReader reader, Database database, AtomicLong lineNumber) throws IOException {
-        lineNumber.incrementAndGet(); // adding HISTORY_SEPARATOR to line counter
+    /*
+     * The sections are read one after another in a single pass, each one's checksum computed as it is parsed
+     * and checked at its end, before its tasks are added. A section that fails to parse is read to its end,
+     * so a damaged file is reported as such.
+     */
+    private void readVerified(InputStream in, SectionIndex index, Database database) throws IOException {
+        long position = 0;
+        for (int section = 0; section < SECTIONS.length; section++) {
+            // the separator line before the section
+            in.skipNBytes(index.offsets[section] - position);
+            position = index.offsets[section] + index.lengths[section];
 
-        reader.lines()
-                .takeWhile(line -> !line.equals(STATISTICS_SEPARATOR))
-                .peek(line -> lineNumber.incrementAndGet())
-                .map(this::createTaskFromString)
-                .forEach(database::addToHistory);
+            SectionInputStream sectionIn = new SectionInputStream(in, index.lengths[section]);
+            try {
+                switch (section) {
+                    case 0 -> database.addTasks(readTaskSection(sectionIn, index, section));
+                    case 1 -> readTaskSection(sectionIn, index, section).forEach(database::addToHistory);
+                    default -> {
+                        readStatisticsFromFile(sectionScanner(sectionIn, section), database);
+                        verify(sectionIn, index, section);
+                    }
+                }
+            } catch (RuntimeException e) {
+                verify(sectionIn, index, section);
+                throw e;
+            }
+        }
     }
 
-    private Task createTaskFromString(String line) {
-        String[] splitLine = line.split(";");
+    // the tasks of the section once its checksum was checked
+    private List<Task> readTaskSection(SectionInputStream in, SectionIndex index, int section) throws IOException {
+        List<Task> tasks = cacheSections
+                ? TaskSectionCache.get(SECTIONS[section], index.checksums[section], index.lengths[section])
+                : null;
+        if (tasks != null) {
+            verify(in, index, section);
+            return tasks;
+        }
 
-        String name = splitLine[0];
-        String description = splitLine[1];
-        LocalDate creationDate = LocalDate.parse(splitLine[2]);
-        LocalDate deadline = LocalDate.parse(splitLine[3]);
-        Status status = Status.valueOf(splitLine[4]);
-        Priority priority = Priority.valueOf(splitLine[5]);
+        tasks = new ArrayList<>();
+        CsvTaskScanner scanner = sectionScanner(in, section);
+        while (scanner.hasMoreLines()) {
+            tasks.add(scanner.readTask());
+        }
+        verify(in, index, section);
+
+        if (cacheSections)
+            TaskSectionCache.put(SECTIONS[section], index.checksums[section], index.lengths[section], tasks);
+        return tasks;
+    }
+
+    private void verify(SectionInputStream in, SectionIndex index, int section) throws IOException {
+        if (!in.matches(index.checksums[section]))
+            throw new FileReadException("Checksum mismatch in the " + SECTIONS[section] + " section of " + fileName +
+                    ", the file is damaged.");
+    }
+
+    private CsvTaskScanner sectionScanner(InputStream in, int section) {
+        return scanner(in, fileName + " (" + SECTIONS[section] + " section)");
+    }
+
+    private static CsvTaskScanner scanner(InputStream in, String source) {
+        return new CsvTaskScanner(new InputStreamReader(in, StandardCharsets.UTF_8), source);
+    }
 
-        return new Task(name, description, creationDate, deadline, status, priority);
+    private void readTasksFromFile(CsvTaskScanner scanner, Database database) throws IOException {
+        while (!scanner.skipLine(HISTORY_SEPARATOR)) {
+            if (!scanner.hasMoreLines())
+                throw new FileReadException("Missing " + HISTORY_SEPARATOR + " section in " + fileName + ".");
+            database.addTask(scanner.readTask());
+        }
     }
 
-    private void readStatisticsFromFile(BufferedReader reader, Database database, AtomicLong lineNumber) throws IOException {
-        lineNumber.incrementAndGet(); // adding STATISTICS_SEPARATOR to line counter
-        lineNumber.incrementAndGet(); // adding line with statistics to the line counter
+    private void readHistoryFromFile(CsvTaskScanner scanner, Database database) throws IOException {
+        while (!scanner.skipLine(STATISTICS_SEPARATOR)) {
+            if (!scanner.hasMoreLines())
+                throw new FileReadException("Missing " + STATISTICS_SEPARATOR + " section in " + fileName + ".");
+            database.addToHistory(scanner.readTask());
+        }
+    }
+
+    // also used for the statistics file of BucketFileManager
+    static void readStatisticsFromFile(CsvTaskScanner scanner, Database database) throws IOException {
+        database.setTasksCreated(scanner.readInt());
+        database.setTasksCompleted(scanner.readInt());
+        database.setTasksFailed(scanner.readInt());
+        // files written before task ids end the counters line after the failed count
+        database.setLastTaskId(scanner.readOptionalLong());
+        scanner.endLine();
+
+        // files written before the rolling statistics end after the counters
+        TaskStatistics statistics = database.getStatistics();
+        while (scanner.hasMoreLines()) {
+            String scope = scanner.readString();
+            String key = scanner.readString();
+            Counters counters = new Counters(scanner.readInt(), scanner.readInt(), scanner.readInt(), scanner.readLong());
+            scanner.endLine();
 
-        String[] splitLine = reader.readLine().split(";");
-        database.setTasksCreated(Integer.parseInt(splitLine[0]));
-        database.setTasksCompleted(Integer.parseInt(splitLine[1]));
-        database.setTasksFailed(Integer.parseInt(splitLine[2]));
+            try {
+                statistics.setRow(scope, key, counters);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw scanner.error("unknown statistics " + scope + " " + key);
+            }
+        }
     }
 
     @Override
     public void saveToFile(Database database) {
-        try (
-            FileWriter fileWriter = new FileWriter(FILE_NAME);
-            BufferedWriter writer = new BufferedWriter(fileWriter)
-        ){
-            writeTasksToFile(writer, getAllTasksFromDatabase(database));
-            writer.write(HISTORY_SEPARATOR);
-            writer.newLine();
-            writeTasksToFile(writer, database.getTasksHistory());
-            writer.write(STATISTICS_SEPARATOR);
-            writer.newLine();
-            writeStatisticsToFile(writer, database);
+        saveSnapshot(database.snapshot());
+    }
+
+    // written to a temp file that replaces the old one only after it was forced to disk
+    public void saveSnapshot(DatabaseSnapshot snapshot) {
+        List<Task> tasks = getAllTasks(snapshot);
+        List<Task> history = snapshot.getTasksHistory();
+        byte[][] sections = encodeSections(tasks, history, snapshot);
+        long[] checksums = checksums(sections);
+
+        AtomicFileWriter.write(Path.of(fileName), out -> writeSections(sections, checksums, out));
+
+        if (cacheSections) {
+            TaskSectionCache.put(SECTIONS[0], checksums[0], sections[0].length, tasks);
+            TaskSectionCache.put(SECTIONS[1], checksums[1], sections[1].length, history);
+        }
+    }
+
+    // the file content for the snapshot, e.g. to send it to a replication follower
+    public static byte[] encodeSnapshot(DatabaseSnapshot snapshot) {
+        byte[][] sections = encodeSections(getAllTasks(snapshot), snapshot.getTasksHistory(), snapshot);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeSections(sections, checksums(sections), out);
         } catch (IOException e) {
-            throw new FileWriteException("Error while writing data to " + FILE_NAME);
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[][] encodeSections(List<Task> tasks, List<Task> history, DatabaseSnapshot snapshot) {
+        return new byte[][]{
+                encodeTasks(tasks),
+                encodeTasks(history),
+                encodeStatistics(snapshot)
+        };
+    }
+
+    private static long[] checksums(byte[][] sections) {
+        long[] checksums = new long[sections.length];
+        for (int i = 0; i < sections.length; i++) {
+            checksums[i] = checksum(sections[i], 0, sections[i].length);
         }
+        return checksums;
     }
 
-    private void writeTasksToFile(BufferedWriter writer, List<Task> tasks) throws IOException {
+    private static void writeSections(byte[][] sections, long[] checksums, OutputStream out) throws IOException {
+        byte[] newLine = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        byte[][] separators = {
+                (HISTORY_SEPARATOR + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                (STATISTICS_SEPARATOR + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)
+        };
+
+        StringBuilder index = new StringBuilder(CHECKSUMS).append(';');
+        long offset = 0;
+        for (int i = 0; i < sections.length; i++) {
+            if (i > 0)
+                offset += separators[i - 1].length;
+            index.append(offset).append(';').append(sections[i].length).append(';').append(checksums[i]).append(';');
+            offset += sections[i].length;
+        }
+
+        for (int i = 0; i < sections.length; i++) {
+            if (i > 0)
+                out.write(separators[i - 1]);
+            out.write(sections[i]);
+        }
+        out.write(index.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(newLine);
+    }
+
+    private static byte[] encodeTasks(List<Task> tasks) {
         StringBuilder builder = new StringBuilder();
         tasks.forEach(task ->
                 builder.append(task.toCsv()).append(System.lineSeparator()));
-        writer.write(builder.toString());
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
     }
 
-    private List<Task> getAllTasksFromDatabase(Database database) {
-        return database.getTasks().values()
+    private static List<Task> getAllTasks(DatabaseSnapshot snapshot) {
+        return snapshot.getTasks().values()
                 .stream()
                 .flatMap(Collection::stream)
                 .toList();
     }
 
-    private void writeStatisticsToFile(BufferedWriter writer, Database database) throws IOException {
-        String statistics = database.getTasksCreated() + ";" +
-                database.getTasksCompleted() + ";" +
-                database.getTasksFailed();
-        writer.write(statistics);
+    static byte[] encodeStatistics(DatabaseSnapshot snapshot) {
+        StringBuilder builder = new StringBuilder()
+                .append(snapshot.getTasksCreated()).append(';')
+                .append(snapshot.getTasksCompleted()).append(';')
+                .append(snapshot.getTasksFailed()).append(';')
+                .append(snapshot.getLastTaskId())
+                .append(System.lineSeparator());
+
+        snapshot.getStatistics().forEachRow((scope, key, counters) -> builder
+                .append(scope).append(';').append(key).append(';')
+                .append(counters.getCreated()).append(';')
+                .append(counters.getCompleted()).append(';')
+                .append(counters.getFailed()).append(';')
+                .append(counters.getLeadDays()).append(';')
+                .append(System.lineSeparator()));
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] content, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(content, offset, length);
+        return crc.getValue();
+    }
+
+    // offsets, lengths and checksums from the CHECKSUMS line at the end of the file
+    private static class SectionIndex {
+        // more than the longest index line, only the end of the file is read to find it
+        private static final int TAIL_LENGTH = 512;
+
+        private final long[] offsets = new long[SECTIONS.length];
+        private final long[] lengths = new long[SECTIONS.length];
+        private final long[] checksums = new long[SECTIONS.length];
+
+        // tail holds the end of the content from tailOffset on, null if the content has no index line
+        static SectionIndex find(byte[] tail, long tailOffset, String fileName) {
+            int end = tail.length;
+            while (end > 0 && (tail[end - 1] == '\n' || tail[end - 1] == '\r')) {
+                end--;
+            }
+            int start = end;
+            while (start > 0 && tail[start - 1] != '\n') {
+                start--;
+            }
+            // a last line longer than the tail isn't an index line
+            if (start == 0 && tailOffset > 0)
+                return null;
+
+            String line = new String(tail, start, end - start, StandardCharsets.UTF_8);
+            if (!line.startsWith(CHECKSUMS + ";"))
+                return null;
+
+            String[] fields = line.split(";");
+            if (fields.length != 1 + 3 * SECTIONS.length)
+                throw new FileReadException("Incorrect " + CHECKSUMS + " line in " + fileName + ".");
+
+            SectionIndex index = new SectionIndex();
+            long sectionsEnd = 0;
+            try {
+                for (int i = 0; i < SECTIONS.length; i++) {
+                    index.offsets[i] = Long.parseLong(fields[1 + 3 * i]);
+                    index.lengths[i] = Long.parseLong(fields[2 + 3 * i]);
+                    index.checksums[i] = Long.parseLong(fields[3 + 3 * i]);
+                    // sections follow each other and end before the index line
+                    if (index.offsets[i] < sectionsEnd || index.lengths[i] < 0 ||
+                            index.offsets[i] + index.lengths[i] > tailOffset + start)
+                        throw new FileReadException("Incorrect " + CHECKSUMS + " line in " + fileName + ".");
+                    sectionsEnd = index.offsets[i] + index.lengths[i];
+                }
+            } catch (NumberFormatException e) {
+                throw new FileReadException("Incorrect " + CHECKSUMS + " line in " + fileName + ".");
+            }
+            return index;
+        }
+    }
+
+    // one section of the content, its checksum computed as it is read
+    private static class SectionInputStream extends InputStream {
+        private final InputStream in;
+        private final CRC32C crc = new CRC32C();
+        private long remaining;
+        private boolean truncated;
+
+        SectionInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining == 0)
+                return -1;
+
+            int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read < 0) {
+                // the content ends within the section
+                truncated = true;
+                remaining = 0;
+                return -1;
+            }
+            crc.update(bytes, offset, read);
+            remaining -= read;
+            return read;
+        }
+
+        // reads the rest of the section, which the parser may have left
+        boolean matches(long checksum) throws IOException {
+            byte[] rest = new byte[8192];
+            while (read(rest, 0, rest.length) >= 0) {
+                // only the checksum is updated
+            }
+            return !truncated && crc.getValue() == checksum;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,318 @@
+package io.file;
+
+import data.Priority;
+import data.Status;
+import data.Task;
+import exception.FileReadException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/*
+ * Single pass scanner for task lines in the form name;description;creationDate;deadline;status;priority;id;
+ * where lines written before task ids end after the priority and read with id 0.
+ * Fields are read into one reused char buffer, dates and enums are parsed straight from it,
+ * so only the name and description of each task are allocated.
+ */
+class CsvTaskScanner {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_BUFFER_SIZE = 64;
+    private static final int END_OF_INPUT = -1;
+    private static final char SEPARATOR = ';';
+    private static final int DATE_LENGTH = 10;
+
+    private final Reader reader;
+    private final String source;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    private char[] field = new char[128];
+    private int fieldLength;
+    private boolean lineEnded;
+
+    private long line = 1;
+    private int column = 1;
+    private long fieldLine;
+    private int fieldColumn;
+
+    CsvTaskScanner(Reader reader, String source) {
+        this(reader, source, BUFFER_SIZE);
+    }
+
+    // a smaller buffer for short input, e.g. one record, which would otherwise allocate more than it reads
+    CsvTaskScanner(Reader reader, String source, int bufferSize) {
+        this.reader = reader;
+        this.source = source;
+        this.buffer = new char[Math.clamp(bufferSize, MIN_BUFFER_SIZE, BUFFER_SIZE)];
+    }
+
+    boolean hasMoreLines() throws IOException {
+        return ensureAvailable(1);
+    }
+
+    // consumes the next line only if it consists of the given marker
+    boolean skipLine(String marker) throws IOException {
+        int length = marker.length();
+        ensureAvailable(length + 2);
+
+        if (limit - position < length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer[position + i] != marker.charAt(i))
+                return false;
+        }
+
+        int end = position + length;
+        if (end < limit && buffer[end] == '\r')
+            end++;
+        if (end < limit && buffer[end] != '\n')
+            return false;
+
+        position = Math.min(end + 1, limit);
+        nextLine();
+        return true;
+    }
+
+    Task readTask() throws IOException {
+        Task task = readTaskFields();
+        endLine();
+        return task;
+    }
+
+    // a task followed by more fields on its line
+    Task readTaskFields() throws IOException {
+        readField();
+        String name = fieldAsString();
+        if (name.isEmpty())
+            throw error("task name cannot be empty");
+
+        expectMoreFields();
+        readField();
+        String description = fieldAsString();
+
+        expectMoreFields();
+        readField();
+        LocalDate creationDate = parseDate();
+
+        expectMoreFields();
+        readField();
+        LocalDate deadline = parseDate();
+
+        expectMoreFields();
+        readField();
+        Status status = parseStatus();
+
+        expectMoreFields();
+        readField();
+        Priority priority = parsePriority();
+
+        long id = readOptionalLong();
+        return new Task(id, name, description, creationDate, deadline, status, priority);
+    }
+
+    int readInt() throws IOException {
+        return (int) readNumber(Integer.MAX_VALUE);
+    }
+
+    long readLong() throws IOException {
+        return readNumber(Long.MAX_VALUE);
+    }
+
+    // 0 if the line ends before the number
+    long readOptionalLong() throws IOException {
+        if (lineEnded)
+            return 0;
+
+        readField();
+        return fieldLength == 0 ? 0 : parseNumber(Long.MAX_VALUE);
+    }
+
+    // null if the line ends before the date
+    LocalDate readOptionalDate() throws IOException {
+        if (lineEnded)
+            return null;
+
+        readField();
+        return fieldLength == 0 ? null : parseDate();
+    }
+
+    private long readNumber(long maxValue) throws IOException {
+        readField();
+        if (fieldLength == 0)
+            throw error("number expected");
+        return parseNumber(maxValue);
+    }
+
+    private long parseNumber(long maxValue) {
+        long value = 0;
+        for (int i = 0; i < fieldLength; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9 || value > (maxValue - digit) / 10)
+                throw error("invalid number");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    String readString() throws IOException {
+        readField();
+        return fieldAsString();
+    }
+
+    boolean isLineEnded() {
+        return lineEnded;
+    }
+
+    // a line may end with a trailing separator
+    void endLine() throws IOException {
+        if (lineEnded)
+            return;
+
+        readField();
+        if (fieldLength != 0 || !lineEnded)
+            throw error("unexpected data at the end of the line");
+    }
+
+    FileReadException error(String reason) {
+        return new FileReadException("Incorrect data in " + source + " in line " + fieldLine +
+                ", column " + fieldColumn + ": " + reason + ".");
+    }
+
+    private void expectMoreFields() {
+        if (lineEnded)
+            throw error("missing fields");
+    }
+
+    private void readField() throws IOException {
+        fieldLength = 0;
+        fieldLine = line;
+        fieldColumn = column;
+
+        while (true) {
+            if (position == limit && !ensureAvailable(1)) {
+                lineEnded = true;
+                return;
+            }
+
+            char c = buffer[position++];
+            column++;
+
+            if (c == SEPARATOR) {
+                lineEnded = false;
+                return;
+            } else if (c == '\n') {
+                nextLine();
+                lineEnded = true;
+                return;
+            } else if (c != '\r') {
+                appendToField(c);
+            }
+        }
+    }
+
+    private void appendToField(char c) {
+        if (fieldLength == field.length) {
+            char[] grown = new char[field.length * 2];
+            System.arraycopy(field, 0, grown, 0, fieldLength);
+            field = grown;
+        }
+        field[fieldLength++] = c;
+    }
+
+    private String fieldAsString() {
+        return new String(field, 0, fieldLength);
+    }
+
+    // yyyy-MM-dd
+    private LocalDate parseDate() {
+        if (fieldLength != DATE_LENGTH || field[4] != '-' || field[7] != '-')
+            throw error("date in format yyyy-MM-dd expected");
+
+        int year = digits(0, 4);
+        int month = digits(5, 2);
+        int day = digits(8, 2);
+
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw error("invalid date");
+        }
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw error("date in format yyyy-MM-dd expected");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private Status parseStatus() {
+        Status status = switch (fieldLength) {
+            case 4 -> Status.DONE;
+            case 5 -> Status.TO_DO;
+            case 6 -> Status.FAILED;
+            default -> null;
+        };
+
+        if (status == null || !fieldEquals(status.name()))
+            throw error("unknown status");
+        return status;
+    }
+
+    private Priority parsePriority() {
+        Priority priority = switch (fieldLength) {
+            case 3 -> Priority.LOW;
+            case 4 -> Priority.HIGH;
+            case 6 -> field[0] == 'M' ? Priority.MEDIUM : Priority.URGENT;
+            default -> null;
+        };
+
+        if (priority == null || !fieldEquals(priority.name()))
+            throw error("unknown priority");
+        return priority;
+    }
+
+    private boolean fieldEquals(String value) {
+        if (value.length() != fieldLength)
+            return false;
+
+        for (int i = 0; i < fieldLength; i++) {
+            if (field[i] != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private void nextLine() {
+        line++;
+        column = 1;
+    }
+
+    // moves unread characters to the front of the buffer and fills the rest, false when nothing is left
+    private boolean ensureAvailable(int count) throws IOException {
+        if (limit - position >= count)
+            return true;
+
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+
+        while (limit < count) {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == END_OF_INPUT)
+                break;
+            limit += read;
+        }
+
+        return limit > position;
+    }
+}
@@ -5,4 +5,7 @@ import data.Database;
 public interface FileManager {
     Database readFromFile();
     void saveToFile(Database database);
+
+    // the file or directory the data is kept in, which also keys the archived history
+    String getLocation();
 }
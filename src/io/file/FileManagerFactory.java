@@ -14,11 +14,16 @@ public class FileManagerFactory {
     }
 
     public FileManager getFileManager() {
-        FileManagerType type = readCorrectFileManagerType();
+        return getFileManager(readCorrectFileManagerType());
+    }
 
+    public static FileManager getFileManager(FileManagerType type) {
         return switch (type) {
             case CSV -> getCsvFileManager();
             case SERIALIZABLE -> getSerializableFileManager();
+            case JOURNAL -> getJournalFileManager();
+            case MAPPED -> getMappedFileManager();
+            case BUCKETS -> getBucketFileManager();
         };
     }
 
@@ -55,4 +60,16 @@ public class FileManagerFactory {
     private static FileManager getSerializableFileManager() {
         return new SerializableFileManager();
     }
+
+    private static FileManager getJournalFileManager() {
+        return new JournalFileManager();
+    }
+
+    private static FileManager getMappedFileManager() {
+        return new MappedFileManager();
+    }
+
+    private static FileManager getBucketFileManager() {
+        return new BucketFileManager();
+    }
 }
@@ -4,7 +4,10 @@ import exception.InvalidFileManagerTypeException;
 
 public enum FileManagerType {
     CSV(1, "writing and reading files in csv form"),
-    SERIALIZABLE(2, "serialized file writing and reading");
+    SERIALIZABLE(2, "serialized file writing and reading"),
+    JOURNAL(3, "csv snapshot with a journal of every change"),
+    MAPPED(4, "memory-mapped binary file writing and reading"),
+    BUCKETS(5, "one csv file per date, saving only what changed");
 
     private final int value;
     private final String description;
@@ -0,0 +1,301 @@
+package io.file;
+
+import data.Database;
+import data.DatabaseSnapshot;
+import exception.FileReadException;
+import exception.FileWriteException;
+import service.TaskService;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * Every TaskService mutation is appended as one ChangeRecorder record to the active journal file.
+ * Journals and snapshots carry a generation number: snapshot-N.csv contains the state
+ * after replaying every journal up to journal-N.log, so startup loads the newest snapshot
+ * and replays only the journals that are newer than it. Without any of them, the CSV database file becomes
+ * snapshot-0.csv, so switching an existing install to the journal keeps its data.
+ * Records are queued while the change is made and written once it completed, outside the database lock,
+ * one writer flushing the records of every change that completed meanwhile at once.
+ */
+public class JournalFileManager extends ChangeRecorder implements FileManager {
+    public static final String DIRECTORY = "src/db/journal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".csv";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private final Path directory;
+    private final String databaseFile;
+    // one save or compaction at a time, apart from the lock on this, which records take while a save takes its snapshot
+    private final Object saveLock = new Object();
+    // one writer at a time, which owns the journal writer
+    private final Object writeLock = new Object();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // generation of the next records, guarded by this like the queue
+    private long activeGeneration = 1;
+    private final List<QueuedRecord> queue = new ArrayList<>();
+    private Future<?> compaction;
+
+    // guarded by writeLock
+    private BufferedWriter journalWriter;
+    private long journalGeneration;
+    private long journalSize;
+
+    public JournalFileManager() {
+        this(DIRECTORY, CsvFileManager.FILE_NAME);
+    }
+
+    // databaseFile is the CSV file the first journal starts from
+    public JournalFileManager(String directory, String databaseFile) {
+        this.directory = Path.of(directory);
+        this.databaseFile = databaseFile;
+    }
+
+    @Override
+    public String getLocation() {
+        return directory.toString();
+    }
+
+    @Override
+    public Database readFromFile() {
+        Optional<Long> snapshotGeneration = findLatestGeneration(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        List<Long> journalGenerations = findGenerations(JOURNAL_PREFIX, JOURNAL_SUFFIX);
+
+        if (snapshotGeneration.isEmpty() && journalGenerations.isEmpty())
+            return startFromDatabaseFile();
+
+        long generation = snapshotGeneration.orElse(0L);
+        Database database = snapshotGeneration.isPresent() ? readSnapshot(generation) : new Database();
+
+        for (long journalGeneration : journalGenerations) {
+            if (journalGeneration > generation) {
+                replay(journalPath(journalGeneration), database);
+                generation = journalGeneration;
+            }
+        }
+
+        synchronized (this) {
+            activeGeneration = generation + 1;
+        }
+        return database;
+    }
+
+    private Database startFromDatabaseFile() {
+        if (!Files.exists(Path.of(databaseFile)))
+            throw new FileReadException("Journal in " + directory + " not found.");
+
+        Database database = new CsvFileManager(databaseFile).readFromFile();
+        writeSnapshot(database.snapshot(), 0);
+        synchronized (this) {
+            activeGeneration = 1;
+        }
+        return database;
+    }
+
+    /*
+     * Writes a full snapshot of the current state, after which all journals so far are obsolete. The journal is
+     * switched at the instant the snapshot is taken, so every later change goes to the next journal, and changes
+     * carry on while the snapshot is written.
+     */
+    @Override
+    public void saveToFile(Database database) {
+        synchronized (saveLock) {
+            AtomicLong generation = new AtomicLong();
+            DatabaseSnapshot snapshot = database.snapshot(() -> generation.set(startNextJournal()));
+            // the records of changes before the snapshot may still be queued
+            finishJournals(generation.get());
+            writeSnapshot(snapshot, generation.get());
+            deleteObsoleteFiles(generation.get());
+        }
+    }
+
+    // returns the generation of the last records before the switch
+    private synchronized long startNextJournal() {
+        return activeGeneration++;
+    }
+
+    // called while the change is made, so the records are queued in the order of the changes
+    @Override
+    protected synchronized void record(String record) {
+        queue.add(new QueuedRecord(activeGeneration, record));
+    }
+
+    @Override
+    public void changeCompleted() {
+        writeQueuedRecords();
+    }
+
+    // records may come from several threads, each one is written whole
+    private void writeQueuedRecords() {
+        synchronized (writeLock) {
+            List<QueuedRecord> records;
+            synchronized (this) {
+                if (queue.isEmpty())
+                    return;
+                records = new ArrayList<>(queue);
+                queue.clear();
+            }
+
+            try {
+                for (QueuedRecord record : records) {
+                    if (journalWriter == null || journalGeneration != record.generation())
+                        openJournal(record.generation());
+                    journalWriter.write(record.text());
+                    journalWriter.newLine();
+                    journalSize += record.text().length() + System.lineSeparator().length();
+                }
+                journalWriter.flush();
+            } catch (IOException e) {
+                throw new FileWriteException("Error while writing data to " + journalPath(journalGeneration));
+            }
+
+            if (journalSize >= COMPACTION_THRESHOLD)
+                rollJournal();
+        }
+    }
+
+    // writes what is still queued and closes the journals up to the generation, which are complete then
+    private void finishJournals(long generation) {
+        synchronized (writeLock) {
+            writeQueuedRecords();
+            if (journalGeneration <= generation)
+                closeJournal();
+        }
+    }
+
+    private void openJournal(long generation) throws IOException {
+        closeJournal();
+        Files.createDirectories(directory);
+        Path path = journalPath(generation);
+        journalWriter = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        journalGeneration = generation;
+        journalSize = Files.size(path);
+    }
+
+    private void closeJournal() {
+        if (journalWriter == null)
+            return;
+
+        try {
+            journalWriter.close();
+        } catch (IOException e) {
+            throw new FileWriteException("Error while closing " + journalPath(journalGeneration));
+        } finally {
+            journalWriter = null;
+        }
+    }
+
+    // the full journal is compacted in the background, new records go to the next generation
+    private synchronized void rollJournal() {
+        if (compaction != null && !compaction.isDone())
+            return;
+
+        long generation = activeGeneration++;
+        compaction = compactor.submit(() -> compact(generation));
+    }
+
+    // waits for running saves, which may have replaced the journals meanwhile
+    private void compact(long generation) {
+        synchronized (saveLock) {
+            finishJournals(generation);
+            Optional<Long> snapshotGeneration = findLatestGeneration(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (snapshotGeneration.isPresent() && snapshotGeneration.get() >= generation)
+                return;
+            Database database = snapshotGeneration.isPresent() ? readSnapshot(snapshotGeneration.get()) : new Database();
+
+            for (long journalGeneration : findGenerations(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                if (journalGeneration > snapshotGeneration.orElse(0L) && journalGeneration <= generation)
+                    replay(journalPath(journalGeneration), database);
+            }
+
+            writeSnapshot(database.snapshot(), generation);
+            deleteObsoleteFiles(generation);
+        }
+    }
+
+    private void replay(Path journal, Database database) {
+        try (Reader reader = new FileReader(journal.toFile())) {
+            replay(reader, journal.toString(), new TaskService(database));
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + journal);
+        }
+    }
+
+    // the parsed snapshot stays cached, so the next compaction doesn't parse the snapshot it just wrote
+    private Database readSnapshot(long generation) {
+        return new CsvFileManager(snapshotPath(generation).toString(), true).readFromFile();
+    }
+
+    // CsvFileManager writes through a temp file, so the snapshot becomes visible only after it was completely written
+    private void writeSnapshot(DatabaseSnapshot snapshot, long generation) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new FileWriteException("Error while creating " + directory);
+        }
+        new CsvFileManager(snapshotPath(generation).toString(), true).saveSnapshot(snapshot);
+    }
+
+    private void deleteObsoleteFiles(long generation) {
+        try {
+            for (long snapshotGeneration : findGenerations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (snapshotGeneration < generation)
+                    Files.deleteIfExists(snapshotPath(snapshotGeneration));
+            }
+            for (long journalGeneration : findGenerations(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                if (journalGeneration <= generation)
+                    Files.deleteIfExists(journalPath(journalGeneration));
+            }
+        } catch (IOException e) {
+            throw new FileWriteException("Error while deleting old journal files from " + directory);
+        }
+    }
+
+    private Optional<Long> findLatestGeneration(String prefix, String suffix) {
+        List<Long> generations = findGenerations(prefix, suffix);
+        return generations.isEmpty() ? Optional.empty() : Optional.of(generations.getLast());
+    }
+
+    private List<Long> findGenerations(String prefix, String suffix) {
+        if (!Files.isDirectory(directory))
+            return List.of();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> generations = new ArrayList<>(files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .toList());
+            generations.sort(null);
+            return generations;
+        } catch (IOException | NumberFormatException e) {
+            throw new FileReadException("Error while listing journal files in " + directory);
+        }
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+    }
+
+    private Path journalPath(long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+
+    private record QueuedRecord(long generation, String text) {
+    }
+}
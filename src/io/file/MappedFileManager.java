@@ -0,0 +1,331 @@
+package io.file;
+
+import data.Database;
+import data.DatabaseSnapshot;
+import data.Priority;
+import data.Status;
+import data.Task;
+import data.TaskStatistics;
+import data.TaskStatistics.Counters;
+import exception.FileReadException;
+import exception.FileWriteException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * File layout:
+ * header  - magic, version, statistics, the number of tasks and history entries and the last task id
+ * records - one fixed size record per task, tasks first and history after them
+ * rows    - the number of statistics rows and one fixed size row per priority, day and week
+ * days    - the number of dates and the epoch day, first record and task count of each priority of each date,
+ *           so paging by priority needn't decode the day
+ * heap    - UTF-8 bytes of all names and descriptions, addressed by offsets stored in the records
+ * Only the day index and the history are read at startup. Each date is decoded the first time
+ * it is used, from the mapping, which stays valid after a save replaces the file.
+ * The file is mapped as one buffer, so it is limited to 2GB.
+ */
+public class MappedFileManager implements FileManager {
+    public static final String FILE_NAME = "src/db/database.bin";
+    private static final int MAGIC = 0x54444C31; // "TDL1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES + Long.BYTES;
+    // creation date, deadline, status, priority, padding, name offset and length, description offset and length, id
+    private static final int RECORD_SIZE = 2 * Integer.BYTES + 4 + 4 * Integer.BYTES + Long.BYTES;
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+    // scope, priority ordinal or epoch day, created, completed and failed counts, lead days
+    private static final int ROW_SIZE = 1 + 4 * Integer.BYTES + Long.BYTES;
+    private static final String[] SCOPES = {TaskStatistics.PRIORITY, TaskStatistics.DAY, TaskStatistics.WEEK};
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+    // epoch day, first record, task count of each priority
+    private static final int DAY_SIZE = (2 + PRIORITIES.length) * Integer.BYTES;
+
+    private final String fileName;
+
+    public MappedFileManager() {
+        this(FILE_NAME);
+    }
+
+    public MappedFileManager(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public String getLocation() {
+        return fileName;
+    }
+
+    @Override
+    public Database readFromFile() {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE)
+                throw new FileReadException("File " + fileName + " is too large to be mapped.");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readDatabase(buffer);
+        } catch (NoSuchFileException e) {
+            throw new FileReadException("File " + fileName + " not found.");
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + fileName);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new FileReadException("Incorrect data in " + fileName + ".");
+        }
+    }
+
+    private Database readDatabase(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new FileReadException("File " + fileName + " is not a supported task file.");
+
+        Database database = new Database();
+        database.setTasksCreated(buffer.getInt());
+        database.setTasksCompleted(buffer.getInt());
+        database.setTasksFailed(buffer.getInt());
+        int taskCount = buffer.getInt();
+        int historyCount = buffer.getInt();
+        database.setLastTaskId(buffer.getLong());
+
+        int rowsStart = HEADER_SIZE + (taskCount + historyCount) * RECORD_SIZE;
+        int rowCount = buffer.getInt(rowsStart);
+        int daysStart = rowsStart + Integer.BYTES + rowCount * ROW_SIZE;
+        int dayCount = buffer.getInt(daysStart);
+        int heapStart = daysStart + Integer.BYTES + dayCount * DAY_SIZE;
+        StringDecoder decoder = new StringDecoder(buffer, heapStart);
+
+        buffer.position(HEADER_SIZE + taskCount * RECORD_SIZE);
+        addUnloadedDays(buffer, daysStart, dayCount, heapStart, database);
+        for (int i = 0; i < historyCount; i++) {
+            database.addToHistory(readTask(buffer, decoder));
+        }
+        readStatistics(buffer, rowCount, database.getStatistics());
+
+        return database;
+    }
+
+    private void addUnloadedDays(ByteBuffer buffer, int daysStart, int dayCount, int heapStart, Database database) {
+        for (int i = 0; i < dayCount; i++) {
+            int entry = daysStart + Integer.BYTES + i * DAY_SIZE;
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt(entry));
+            int firstRecord = buffer.getInt(entry + Integer.BYTES);
+
+            int[] laneSizes = new int[PRIORITIES.length];
+            for (int priority = 0; priority < laneSizes.length; priority++) {
+                laneSizes[priority] = buffer.getInt(entry + (2 + priority) * Integer.BYTES);
+            }
+            int count = Arrays.stream(laneSizes).sum();
+            database.addUnloadedDay(date, laneSizes, () -> readDay(buffer, heapStart, firstRecord, count));
+        }
+    }
+
+    // runs on first use of the day, with its own view of the mapping so days can be decoded concurrently
+    private List<Task> readDay(ByteBuffer buffer, int heapStart, int firstRecord, int count) {
+        ByteBuffer view = buffer.duplicate().position(HEADER_SIZE + firstRecord * RECORD_SIZE);
+        StringDecoder decoder = new StringDecoder(view, heapStart);
+
+        try {
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(readTask(view, decoder));
+            }
+            return tasks;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new FileReadException("Incorrect data in " + fileName + ".");
+        }
+    }
+
+    private void readStatistics(ByteBuffer buffer, int rowCount, TaskStatistics statistics) {
+        buffer.getInt(); // row count, already read
+        for (int i = 0; i < rowCount; i++) {
+            String scope = SCOPES[buffer.get()];
+            int key = buffer.getInt();
+            Counters counters = new Counters(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+            String keyText = scope.equals(TaskStatistics.PRIORITY)
+                    ? PRIORITIES[key].name()
+                    : LocalDate.ofEpochDay(key).toString();
+            statistics.setRow(scope, keyText, counters);
+        }
+    }
+
+    private Task readTask(ByteBuffer buffer, StringDecoder decoder) {
+        LocalDate creationDate = LocalDate.ofEpochDay(buffer.getInt());
+        LocalDate deadline = LocalDate.ofEpochDay(buffer.getInt());
+        Status status = STATUSES[buffer.get()];
+        Priority priority = PRIORITIES[buffer.get()];
+        buffer.position(buffer.position() + 2); // padding
+        String name = decoder.decode(buffer.getInt(), buffer.getInt());
+        String description = decoder.decode(buffer.getInt(), buffer.getInt());
+        long id = buffer.getLong();
+
+        return new Task(id, name, description, creationDate, deadline, status, priority);
+    }
+
+    @Override
+    public void saveToFile(Database database) {
+        DatabaseSnapshot snapshot = database.snapshot();
+        List<Task> tasks = new ArrayList<>();
+        List<byte[]> days = new ArrayList<>();
+        for (Map.Entry<LocalDate, List<Task>> day : snapshot.getTasks().entrySet()) {
+            List<Task> dayTasks = day.getValue();
+            ByteBuffer entry = ByteBuffer.allocate(DAY_SIZE)
+                    .putInt((int) day.getKey().toEpochDay())
+                    .putInt(tasks.size());
+            int[] laneSizes = new int[PRIORITIES.length];
+            dayTasks.forEach(task -> laneSizes[task.getPriority().ordinal()]++);
+            for (int laneSize : laneSizes) {
+                entry.putInt(laneSize);
+            }
+            days.add(entry.array());
+            tasks.addAll(dayTasks);
+        }
+        List<Task> history = snapshot.getTasksHistory();
+
+        StringHeap heap = new StringHeap(tasks.size() + history.size());
+        tasks.forEach(heap::add);
+        history.forEach(heap::add);
+
+        List<byte[]> rows = new ArrayList<>();
+        snapshot.getStatistics().forEachRow((scope, key, counters) -> rows.add(encodeRow(scope, key, counters)));
+
+        long size = HEADER_SIZE + (long) (tasks.size() + history.size()) * RECORD_SIZE
+                + Integer.BYTES + (long) rows.size() * ROW_SIZE
+                + Integer.BYTES + (long) days.size() * DAY_SIZE + heap.size();
+        // a single mapping, whose offsets are ints
+        if (size > MAX_SIZE)
+            throw new FileWriteException("Data too large for " + fileName + ", use another file manager.");
+
+        // written to a temp file that replaces the old one only once it is forced to disk
+        Path target = Path.of(fileName);
+        Path temp = AtomicFileWriter.tempPath(target);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(snapshot.getTasksCreated());
+            buffer.putInt(snapshot.getTasksCompleted());
+            buffer.putInt(snapshot.getTasksFailed());
+            buffer.putInt(tasks.size());
+            buffer.putInt(history.size());
+            buffer.putLong(snapshot.getLastTaskId());
+
+            int stringIndex = 0;
+            for (Task task : tasks) {
+                writeTask(buffer, task, heap, stringIndex);
+                stringIndex += 2;
+            }
+            for (Task task : history) {
+                writeTask(buffer, task, heap, stringIndex);
+                stringIndex += 2;
+            }
+            buffer.putInt(rows.size());
+            rows.forEach(buffer::put);
+            buffer.putInt(days.size());
+            days.forEach(buffer::put);
+            heap.writeTo(buffer);
+            buffer.force();
+        } catch (IOException e) {
+            throw new FileWriteException("Error while writing data to " + fileName);
+        }
+        AtomicFileWriter.replace(temp, target);
+    }
+
+    private void writeTask(ByteBuffer buffer, Task task, StringHeap heap, int stringIndex) {
+        buffer.putInt((int) task.getCreationDate().toEpochDay());
+        buffer.putInt((int) task.getDeadline().toEpochDay());
+        buffer.put((byte) task.getStatus().ordinal());
+        buffer.put((byte) task.getPriority().ordinal());
+        buffer.putShort((short) 0); // padding
+        buffer.putInt(heap.offset(stringIndex));
+        buffer.putInt(heap.length(stringIndex));
+        buffer.putInt(heap.offset(stringIndex + 1));
+        buffer.putInt(heap.length(stringIndex + 1));
+        buffer.putLong(task.getId());
+    }
+
+    private static byte[] encodeRow(String scope, String key, Counters counters) {
+        ByteBuffer row = ByteBuffer.allocate(ROW_SIZE);
+        row.put((byte) List.of(SCOPES).indexOf(scope));
+        row.putInt(scope.equals(TaskStatistics.PRIORITY)
+                ? Priority.valueOf(key).ordinal()
+                : (int) LocalDate.parse(key).toEpochDay());
+        row.putInt(counters.getCreated());
+        row.putInt(counters.getCompleted());
+        row.putInt(counters.getFailed());
+        row.putLong(counters.getLeadDays());
+        return row.array();
+    }
+
+    // decodes strings straight from the mapped heap, reusing one scratch array
+    private static class StringDecoder {
+        private final ByteBuffer buffer;
+        private final int heapStart;
+        private byte[] scratch = new byte[256];
+
+        StringDecoder(ByteBuffer buffer, int heapStart) {
+            this.buffer = buffer;
+            this.heapStart = heapStart;
+        }
+
+        String decode(int offset, int length) {
+            if (length > scratch.length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+
+            buffer.get(heapStart + offset, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    // name and description of every task, encoded once so the file size is known before mapping
+    private static class StringHeap {
+        private final byte[][] strings;
+        private final int[] offsets;
+        private int count;
+        private long size;
+
+        StringHeap(int taskCount) {
+            strings = new byte[taskCount * 2][];
+            offsets = new int[taskCount * 2];
+        }
+
+        void add(Task task) {
+            add(task.getName());
+            add(task.getDescription());
+        }
+
+        private void add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            strings[count] = bytes;
+            offsets[count++] = (int) size;
+            size += bytes.length;
+        }
+
+        int offset(int index) {
+            return offsets[index];
+        }
+
+        int length(int index) {
+            return strings[index].length;
+        }
+
+        long size() {
+            return size;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            for (int i = 0; i < count; i++) {
+                buffer.put(strings[i]);
+            }
+        }
+    }
+}
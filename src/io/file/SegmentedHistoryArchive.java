@@ -0,0 +1,282 @@
+package io.file;
+
+import data.HistoryArchive;
+import data.Task;
+import exception.FileReadException;
+import exception.FileWriteException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * History archive made of gzip compressed csv segments, one task per line.
+ * File names carry the sequence number, task count and month (segment-<sequence>-<count>-<yyyy-MM>.csv.gz),
+ * so the archive size is known from the directory listing and a page reads only the segments it overlaps.
+ * A segment rolls over once it is full or a task is due in a later month than the segment's first task,
+ * so each month of deadlines starts a new segment. Pending segments have an extra .pending suffix until
+ * they are committed. Every database file has its own archive next to it.
+ */
+public class SegmentedHistoryArchive implements HistoryArchive {
+    private static final String DIRECTORY_SUFFIX = ".history";
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".csv.gz";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final int SEGMENT_TASKS = 1000;
+
+    private final Path directory;
+    // committed segments first, then the pending ones, both in sequence order
+    private final List<Segment> segments = new ArrayList<>();
+    private int size;
+
+    // paging through the history mostly stays within the segment read last
+    private Segment cachedSegment;
+    private List<Task> cachedTasks;
+
+    // the archive of the data the file manager keeps, e.g. src/db/database.csv.history
+    public static SegmentedHistoryArchive of(FileManager fileManager) {
+        return new SegmentedHistoryArchive(fileManager.getLocation() + DIRECTORY_SUFFIX);
+    }
+
+    public SegmentedHistoryArchive(String directory) {
+        this.directory = Path.of(directory);
+        listSegments();
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized List<Task> read(int offset, int limit) {
+        List<Task> tasks = new ArrayList<>();
+        int position = 0;
+
+        for (Segment segment : segments) {
+            if (tasks.size() == limit)
+                break;
+            if (position + segment.count <= offset) {
+                position += segment.count;
+                continue;
+            }
+
+            List<Task> segmentTasks = readCached(segment);
+            for (int i = Math.max(0, offset - position); i < segmentTasks.size() && tasks.size() < limit; i++) {
+                tasks.add(segmentTasks.get(i));
+            }
+            position += segment.count;
+        }
+        return tasks;
+    }
+
+    @Override
+    public synchronized void prepare(List<Task> tasks) {
+        long sequence = segments.isEmpty() ? 1 : segments.getLast().sequence + 1;
+
+        int start = 0;
+        while (start < tasks.size()) {
+            YearMonth month = YearMonth.from(tasks.get(start).getDeadline());
+            int end = start + 1;
+            while (end < tasks.size() && end - start < SEGMENT_TASKS
+                    && !YearMonth.from(tasks.get(end).getDeadline()).isAfter(month)) {
+                end++;
+            }
+
+            Segment segment = new Segment(sequence++, end - start, month, true);
+            writeSegment(segment, tasks.subList(start, end));
+            segments.add(segment);
+            size += segment.count;
+            start = end;
+        }
+    }
+
+    @Override
+    public synchronized void commit() {
+        for (Segment segment : segments) {
+            if (segment.pending)
+                promote(segment);
+        }
+    }
+
+    @Override
+    public synchronized void abort() {
+        for (Segment segment : List.copyOf(segments)) {
+            if (segment.pending)
+                delete(segment);
+        }
+    }
+
+    @Override
+    public synchronized void recover(List<Task> loadedHistory) {
+        List<Segment> pending = segments.stream().filter(segment -> segment.pending).toList();
+        if (pending.isEmpty())
+            return;
+
+        if (startsWithPendingTasks(pending, loadedHistory))
+            pending.forEach(this::delete); // the save never finished, the tasks are still in the loaded history
+        else
+            pending.forEach(this::promote);
+    }
+
+    @Override
+    public synchronized void clear() {
+        List.copyOf(segments).forEach(this::delete);
+    }
+
+    private boolean startsWithPendingTasks(List<Segment> pending, List<Task> loadedHistory) {
+        int position = 0;
+
+        for (Segment segment : pending) {
+            List<Task> segmentTasks;
+            try {
+                segmentTasks = readSegment(segment);
+            } catch (FileReadException e) {
+                // a pending segment cut short means the save that would commit it never started
+                return true;
+            }
+
+            if (position + segmentTasks.size() > loadedHistory.size())
+                return false;
+            for (Task task : segmentTasks) {
+                Task loadedTask = loadedHistory.get(position++);
+                if (!task.hasSameData(loadedTask) || task.getStatus() != loadedTask.getStatus())
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Task> readCached(Segment segment) {
+        if (segment != cachedSegment) {
+            cachedTasks = readSegment(segment);
+            cachedSegment = segment;
+        }
+        return cachedTasks;
+    }
+
+    private List<Task> readSegment(Segment segment) {
+        Path path = path(segment);
+        List<Task> tasks = new ArrayList<>(segment.count);
+
+        try (Reader reader = new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(path.toFile())), StandardCharsets.UTF_8)) {
+            CsvTaskScanner scanner = new CsvTaskScanner(reader, path.toString());
+            while (scanner.hasMoreLines()) {
+                tasks.add(scanner.readTask());
+            }
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + path);
+        }
+        return tasks;
+    }
+
+    private void writeSegment(Segment segment, List<Task> tasks) {
+        Path path = path(segment);
+
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(path.toFile())), StandardCharsets.UTF_8))) {
+                for (Task task : tasks) {
+                    writer.write(task.toCsv());
+                    writer.write(System.lineSeparator());
+                }
+            }
+        } catch (IOException e) {
+            throw new FileWriteException("Error while writing data to " + path);
+        }
+    }
+
+    private void promote(Segment segment) {
+        Path pendingPath = path(segment);
+        segment.pending = false;
+
+        try {
+            Files.move(pendingPath, path(segment), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            segment.pending = true;
+            throw new FileWriteException("Error while committing " + pendingPath);
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(path(segment));
+        } catch (IOException e) {
+            throw new FileWriteException("Error while deleting " + path(segment));
+        }
+
+        segments.remove(segment);
+        size -= segment.count;
+        if (segment == cachedSegment) {
+            cachedSegment = null;
+            cachedTasks = null;
+        }
+    }
+
+    private void listSegments() {
+        if (!Files.isDirectory(directory))
+            return;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX))
+                    .map(Segment::parse)
+                    .sorted(Comparator.comparing((Segment segment) -> segment.pending)
+                            .thenComparingLong(segment -> segment.sequence))
+                    .forEach(segments::add);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new FileReadException("Error while listing history segments in " + directory);
+        }
+        segments.forEach(segment -> size += segment.count);
+    }
+
+    private Path path(Segment segment) {
+        String name = PREFIX + segment.sequence + "-" + segment.count + "-" + segment.month + SUFFIX;
+        return directory.resolve(segment.pending ? name + PENDING_SUFFIX : name);
+    }
+
+    private static class Segment {
+        private final long sequence;
+        private final int count;
+        // deadline month of the first task
+        private final YearMonth month;
+        private boolean pending;
+
+        Segment(long sequence, int count, YearMonth month, boolean pending) {
+            this.sequence = sequence;
+            this.count = count;
+            this.month = month;
+            this.pending = pending;
+        }
+
+        // segment-<sequence>-<count>-<yyyy-MM>.csv.gz with an optional .pending suffix
+        static Segment parse(String name) {
+            boolean pending = name.endsWith(PENDING_SUFFIX);
+            String stem = pending ? name.substring(0, name.length() - PENDING_SUFFIX.length()) : name;
+            if (!stem.endsWith(SUFFIX))
+                throw new IllegalArgumentException("Unknown history file " + name);
+
+            String[] parts = stem.substring(PREFIX.length(), stem.length() - SUFFIX.length()).split("-", 3);
+            if (parts.length != 3)
+                throw new IllegalArgumentException("Unknown history file " + name);
+            try {
+                return new Segment(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), YearMonth.parse(parts[2]),
+                        pending);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Unknown history file " + name);
+            }
+        }
+    }
+}
@@ -5,36 +5,86 @@ import exception.FileReadException;
 import exception.FileWriteException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
 
-
+// the serialized database is followed by a trailer with its CRC32C and a marker,
+// files without the trailer are read without verification
 public class SerializableFileManager implements FileManager {
     public static final String FILE_NAME = "src/db/database.obj";
+    private static final int TRAILER_MARKER = 0x43524331; // "CRC1"
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final String fileName;
+
+    public SerializableFileManager() {
+        this(FILE_NAME);
+    }
+
+    public SerializableFileManager(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public String getLocation() {
+        return fileName;
+    }
 
     @Override
     public Database readFromFile() {
-        try (
-                FileInputStream fis = new FileInputStream(FILE_NAME);
-                ObjectInputStream ois = new ObjectInputStream(fis)
-        ){
-            return  (Database) ois.readObject();
-        } catch (FileNotFoundException e) {
-            throw new FileReadException("File " + FILE_NAME + " not found.");
+        byte[] content;
+        try {
+            content = Files.readAllBytes(Path.of(fileName));
+        } catch (NoSuchFileException e) {
+            throw new FileReadException("File " + fileName + " not found.");
+        } catch (IOException e) {
+            throw new FileReadException("Error while reading data from " + fileName);
+        }
+
+        int length = content.length;
+        if (length >= TRAILER_SIZE) {
+            ByteBuffer trailer = ByteBuffer.wrap(content, length - TRAILER_SIZE, TRAILER_SIZE);
+            long checksum = trailer.getLong();
+            if (trailer.getInt() == TRAILER_MARKER) {
+                length -= TRAILER_SIZE;
+                if (checksum(content, length) != checksum)
+                    throw new FileReadException("Checksum mismatch in " + fileName + ", the file is damaged.");
+            }
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content, 0, length))) {
+            return (Database) ois.readObject();
         } catch (IOException | ClassNotFoundException e) {
-            throw new FileReadException("Error while reading data from " + FILE_NAME);
+            throw new FileReadException("Error while reading data from " + fileName);
         }
     }
 
     @Override
     public void saveToFile(Database database) {
-        try (
-                FileOutputStream fos = new FileOutputStream(FILE_NAME);
-                ObjectOutputStream oos = new ObjectOutputStream(fos)
-        ){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
             oos.writeObject(database);
-        } catch (FileNotFoundException e) {
-            throw new FileWriteException("File " + FILE_NAME + " not found.");
         } catch (IOException e) {
-            throw new FileWriteException("Error while writing data to " + FILE_NAME);
+            throw new FileWriteException("Error while writing data to " + fileName);
         }
+
+        byte[] content = bytes.toByteArray();
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE)
+                .putLong(checksum(content, content.length))
+                .putInt(TRAILER_MARKER);
+
+        AtomicFileWriter.write(Path.of(fileName), out -> {
+            out.write(content);
+            out.write(trailer.array());
+        });
+    }
+
+    private static long checksum(byte[] content, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(content, 0, length);
+        return crc.getValue();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package io.file;
+
+import data.Task;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Tasks of the file sections read or written last, by section name and checksum.
+ * Reading a section with the same checksum and length again, e.g. a journal snapshot, copies
+ * the cached tasks instead of parsing them. Entries are soft, so they give way under memory pressure.
+ */
+class TaskSectionCache {
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private TaskSectionCache() {
+    }
+
+    // copies of the cached tasks, null if the section changed or was collected
+    static List<Task> get(String section, long checksum, long length) {
+        Entry entry = ENTRIES.get(section);
+        if (entry == null || entry.checksum != checksum || entry.length != length)
+            return null;
+
+        List<Task> tasks = entry.tasks.get();
+        return tasks == null ? null : copy(tasks);
+    }
+
+    static void put(String section, long checksum, long length, List<Task> tasks) {
+        ENTRIES.put(section, new Entry(checksum, length, copy(tasks)));
+    }
+
+    // the stored tasks are changed by their databases, so neither side may share them
+    private static List<Task> copy(List<Task> tasks) {
+        List<Task> copies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            copies.add(new Task(task));
+        }
+        return copies;
+    }
+
+    private static class Entry {
+        private final long checksum;
+        private final long length;
+        private final SoftReference<List<Task>> tasks;
+
+        Entry(long checksum, long length, List<Task> tasks) {
+            this.checksum = checksum;
+            this.length = length;
+            this.tasks = new SoftReference<>(tasks);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.file;
+
+import data.Database;
+import metrics.Metrics;
+import metrics.Timer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// times every read and save of the wrapped file manager and counts the ones that failed
+public class TimedFileManager implements FileManager {
+    private final FileManager fileManager;
+    private final Timer readTimer;
+    private final Timer saveTimer;
+    private final LongAdder failedReads;
+    private final LongAdder failedSaves;
+
+    public TimedFileManager(FileManager fileManager) {
+        this.fileManager = fileManager;
+        String name = fileManager.getClass().getSimpleName();
+        readTimer = Metrics.timer(name + ".readFromFile");
+        saveTimer = Metrics.timer(name + ".saveToFile");
+        failedReads = Metrics.counter(name + ".readFromFile.failed");
+        failedSaves = Metrics.counter(name + ".saveToFile.failed");
+    }
+
+    @Override
+    public Database readFromFile() {
+        try {
+            return readTimer.time(fileManager::readFromFile);
+        } catch (RuntimeException e) {
+            failedReads.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveToFile(Database database) {
+        try {
+            saveTimer.run(() -> fileManager.saveToFile(database));
+        } catch (RuntimeException e) {
+            failedSaves.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getLocation() {
+        return fileManager.getLocation();
+    }
+}
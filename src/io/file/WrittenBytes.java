@@ -0,0 +1,19 @@
+package io.file;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// running total of the bytes the file managers wrote through AtomicFileWriter, e.g. to measure a save
+public final class WrittenBytes {
+    private static final LongAdder TOTAL = new LongAdder();
+
+    private WrittenBytes() {
+    }
+
+    public static long total() {
+        return TOTAL.sum();
+    }
+
+    static void add(long bytes) {
+        TOTAL.add(bytes);
+    }
+}
@@ -0,0 +1,84 @@
+package metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/*
+ * Process wide registry of timers, counters and gauges, looked up by name. Timers and counters are
+ * created once and kept in static fields by the code that updates them, so the hot path never
+ * touches the registry. Gauges are read only when a snapshot is taken.
+ */
+public final class Metrics {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    // replaces a gauge registered under the same name before
+    public static void gauge(String name, DoubleSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static double[] getPercentiles() {
+        return PERCENTILES.clone();
+    }
+
+    public static SortedMap<String, Timer> getTimers() {
+        return new TreeMap<>(TIMERS);
+    }
+
+    public static SortedMap<String, Long> getCounters() {
+        SortedMap<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.sum()));
+        return counters;
+    }
+
+    public static SortedMap<String, Double> getGauges() {
+        SortedMap<String, Double> gauges = new TreeMap<>();
+        GAUGES.forEach((name, gauge) -> gauges.put(name, gauge.getAsDouble()));
+        return gauges;
+    }
+
+    // timers in milliseconds, then counters and gauges, one per line
+    public static String report() {
+        StringBuilder builder = new StringBuilder("Metrics\n");
+        builder.append(String.format("%-40s %9s %10s", "Timer (ms)", "count", "mean"));
+        for (double percentile : PERCENTILES) {
+            builder.append(String.format(" %10s", "p" + formatPercentile(percentile)));
+        }
+        builder.append(String.format(" %10s\n", "max"));
+
+        getTimers().forEach((name, timer) -> {
+            LatencyHistogram histogram = timer.getHistogram();
+            builder.append(String.format("%-40s %9d %10.3f", name, histogram.getCount(), histogram.getMean() / 1e6));
+            for (double percentile : PERCENTILES) {
+                builder.append(String.format(" %10.3f", histogram.getPercentile(percentile) / 1e6));
+            }
+            builder.append(String.format(" %10.3f\n", histogram.getMax() / 1e6));
+        });
+
+        getCounters().forEach((name, value) -> builder.append(String.format("%-40s %d\n", name, value)));
+        getGauges().forEach((name, value) -> builder.append(String.format("%-40s %.1f\n", name, value)));
+        return builder.toString();
+    }
+
+    public static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,21 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// one timed operation in a flight recording, e.g. started with -XX:StartFlightRecording,
+// only operations of at least a millisecond are recorded unless the recording settings lower the threshold
+@Name("todolist.Operation")
+@Label("ToDoList Operation")
+@Category("ToDoList")
+@Description("A timed TaskService or FileManager operation")
+@StackTrace(false)
+@Threshold("1 ms")
+class OperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+}
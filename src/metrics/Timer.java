@@ -0,0 +1,47 @@
+package metrics;
+
+import java.util.function.Supplier;
+
+// records how long an operation took in its histogram, and as a JFR event when a recording is running
+public class Timer {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public <T> T time(Supplier<T> operation) {
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            histogram.record(System.nanoTime() - start);
+            commit(event);
+        }
+    }
+
+    public void run(Runnable operation) {
+        time(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private void commit(OperationEvent event) {
+        if (event.shouldCommit()) {
+            event.operation = name;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package replication;
+
+// when a change on the primary returns
+public enum AckMode {
+    // once every follower that caught up applied it
+    SYNC,
+    // right away, followers apply it soon after
+    ASYNC;
+
+    public static AckMode createFromString(String mode) {
+        try {
+            return valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown acknowledgement mode " + mode + ", use sync or async.");
+        }
+    }
+}
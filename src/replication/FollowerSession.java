@@ -0,0 +1,147 @@
+package replication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/*
+ * One connected follower. Frames are queued by the threads making changes and written by the session's own thread,
+ * several at a time with one gathering write; a second thread reads the acknowledgements.
+ */
+final class FollowerSession {
+    private static final int MAX_QUEUED_FRAMES = 64 * 1024;
+    private static final int MAX_FRAMES_PER_WRITE = 256;
+    // queued when the session is closed, so the writing thread stops
+    private static final byte[] CLOSED = new byte[0];
+
+    private final SocketChannel channel;
+    private final String name;
+    private final BiConsumer<FollowerSession, String> closeListener;
+    private final BlockingQueue<byte[]> frames = new LinkedBlockingQueue<>(MAX_QUEUED_FRAMES);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // set at the snapshot instant, before any frame is queued
+    private volatile long snapshotSequence = Long.MAX_VALUE;
+    // guarded by this
+    private long acknowledged = -1;
+
+    FollowerSession(SocketChannel channel, String name, BiConsumer<FollowerSession, String> closeListener) {
+        this.channel = channel;
+        this.name = name;
+        this.closeListener = closeListener;
+    }
+
+    void startAt(long sequence) {
+        snapshotSequence = sequence;
+    }
+
+    long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    // a follower that can't keep up is dropped rather than queueing without bound, it catches up again on reconnecting
+    void send(byte[] frame) {
+        if (!frames.offer(frame))
+            close("fell more than " + MAX_QUEUED_FRAMES + " changes behind");
+    }
+
+    // whether the follower loaded its snapshot, before that there is nothing to wait for
+    synchronized boolean isCaughtUp() {
+        return acknowledged >= snapshotSequence;
+    }
+
+    synchronized long getAcknowledged() {
+        return acknowledged;
+    }
+
+    // false if the follower didn't acknowledge the sequence by the deadline, true also once the session is closed
+    synchronized boolean awaitAcknowledged(long sequence, long deadlineNanos) throws InterruptedException {
+        while (acknowledged < sequence && !closed.get()) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return true;
+    }
+
+    private synchronized void acknowledge(long sequence) {
+        acknowledged = Math.max(acknowledged, sequence);
+        notifyAll();
+    }
+
+    // sends the snapshot and then every queued frame until the session is closed
+    void run(byte[] snapshotFrame) {
+        Thread reader = new Thread(this::readAcknowledgements, "replication-acks " + name);
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            Frames.write(channel, ByteBuffer.wrap(snapshotFrame));
+            List<byte[]> batch = new ArrayList<>();
+            while (true) {
+                batch.add(frames.take());
+                frames.drainTo(batch, MAX_FRAMES_PER_WRITE - 1);
+                if (batch.contains(CLOSED))
+                    return;
+
+                ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+                for (int i = 0; i < buffers.length; i++) {
+                    buffers[i] = ByteBuffer.wrap(batch.get(i));
+                }
+                while (buffers[buffers.length - 1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                batch.clear();
+            }
+        } catch (IOException e) {
+            close("write failed, " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close("interrupted");
+        }
+    }
+
+    private void readAcknowledgements() {
+        try {
+            FrameReader reader = new FrameReader(channel);
+            Frames.Header header;
+            while ((header = reader.readHeader()) != null) {
+                if (!header.type.equals(Frames.ACK))
+                    throw new IOException("Unexpected " + header.type + " frame.");
+                acknowledge(header.sequence);
+            }
+            close("disconnected");
+        } catch (IOException e) {
+            close(closed.get() ? "closed" : "read failed, " + e.getMessage());
+        }
+    }
+
+    void close(String reason) {
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        frames.clear();
+        frames.offer(CLOSED);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // closed anyway
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+        closeListener.accept(this, reason);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,84 @@
+package replication;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// reads frames straight from the channel, as many as one read brings, and tells whether more are already read
+final class FrameReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    // in read mode, holds what was read but not yet returned
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+    FrameReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    // whether the next frame was already read, e.g. to acknowledge a burst of changes once
+    boolean hasBuffered() {
+        return buffer.hasRemaining();
+    }
+
+    // null at the end of the stream
+    Frames.Header readHeader() throws IOException {
+        int end;
+        while ((end = lineEnd()) < 0) {
+            if (buffer.remaining() >= Frames.MAX_HEADER_LENGTH)
+                throw new IOException("Frame header longer than " + Frames.MAX_HEADER_LENGTH + " characters.");
+            if (!fill()) {
+                if (!buffer.hasRemaining())
+                    return null;
+                throw new EOFException("Connection closed within a frame header.");
+            }
+        }
+
+        String line = new String(buffer.array(), buffer.position(), end - buffer.position(), StandardCharsets.UTF_8);
+        buffer.position(end + 1);
+
+        String[] fields = line.split(";");
+        try {
+            int length = fields.length == 3 ? Integer.parseInt(fields[2]) : -1;
+            if (length < 0)
+                throw new NumberFormatException();
+            return new Frames.Header(fields[0], Long.parseLong(fields[1]), length);
+        } catch (NumberFormatException e) {
+            throw new IOException("Incorrect frame header " + line + ".");
+        }
+    }
+
+    // a body larger than the buffer, e.g. a snapshot, is read into its array directly
+    byte[] readBody(Frames.Header header) throws IOException {
+        byte[] body = new byte[header.length];
+        int buffered = Math.min(buffer.remaining(), body.length);
+        buffer.get(body, 0, buffered);
+
+        ByteBuffer rest = ByteBuffer.wrap(body, buffered, body.length - buffered);
+        while (rest.hasRemaining()) {
+            if (channel.read(rest) < 0)
+                throw new EOFException("Connection closed within a " + header.type + " frame.");
+        }
+        return body;
+    }
+
+    private int lineEnd() {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    // false at the end of the stream
+    private boolean fill() throws IOException {
+        buffer.compact();
+        try {
+            return channel.read(buffer) >= 0;
+        } finally {
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package replication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * The messages of a replication connection: a header line TYPE;sequence;length followed by length bytes.
+ * SNAPSHOT carries the primary's data in the CSV file format, with the sequence of the last change it includes,
+ * RECORDS the ChangeRecorder records of one change, and ACK, sent back by the follower without a body, tells
+ * that every change up to the sequence was applied.
+ */
+final class Frames {
+    static final String SNAPSHOT = "SNAPSHOT";
+    static final String RECORDS = "RECORDS";
+    static final String ACK = "ACK";
+    static final int MAX_HEADER_LENGTH = 128;
+    private static final byte[] NO_BODY = new byte[0];
+
+    private Frames() {
+    }
+
+    static byte[] encode(String type, long sequence, byte[] body) {
+        byte[] header = (type + ";" + sequence + ";" + body.length + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[header.length + body.length];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(body, 0, frame, header.length, body.length);
+        return frame;
+    }
+
+    static void writeAck(WritableByteChannel channel, long sequence) throws IOException {
+        write(channel, ByteBuffer.wrap(encode(ACK, sequence, NO_BODY)));
+    }
+
+    static void write(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static final class Header {
+        final String type;
+        final long sequence;
+        final int length;
+
+        Header(String type, long sequence, int length) {
+            this.type = type;
+            this.sequence = sequence;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package replication;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+
+// a port on the loopback interface, host:port, or unix:path for a Unix domain socket
+public final class ReplicationAddress {
+    private static final String UNIX_PREFIX = "unix:";
+
+    private ReplicationAddress() {
+    }
+
+    public static SocketAddress parse(String address) {
+        if (address.startsWith(UNIX_PREFIX))
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+
+        try {
+            int separator = address.lastIndexOf(':');
+            if (separator < 0)
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Incorrect replication address " + address +
+                    ", use port, host:port or " + UNIX_PREFIX + "path.");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package replication;
+
+import data.Database;
+import io.file.ChangeRecorder;
+import io.file.CsvFileManager;
+import service.TaskService;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/*
+ * Keeps a TaskService a copy of a ReplicationPrimary's: loads the snapshot the primary sends on connecting, then
+ * applies every change in order and acknowledges it. Acknowledgements are sent once no further change was read,
+ * so a burst of changes is acknowledged once. When the connection is lost the follower reconnects and catches up
+ * from a new snapshot, which replaces all of its data in one step.
+ */
+public class ReplicationFollower {
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+
+    private final SocketAddress primary;
+    private final Consumer<String> messages;
+    private final TaskService taskService = new TaskService(new Database());
+    private volatile SocketChannel channel;
+    private FrameReader reader;
+    private volatile long appliedSequence;
+    private volatile boolean stopped;
+    private Thread thread;
+
+    public ReplicationFollower(SocketAddress primary, Consumer<String> messages) {
+        this.primary = primary;
+        this.messages = messages;
+    }
+
+    // the replicated data, changes are made only by the follower
+    public TaskService getTaskService() {
+        return taskService;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    // connects and loads the primary's data, so queries can be answered before start
+    public void connect() throws IOException {
+        channel = SocketChannel.open(primary);
+        try {
+            reader = new FrameReader(channel);
+            Frames.Header header = reader.readHeader();
+            if (header == null || !header.type.equals(Frames.SNAPSHOT))
+                throw new IOException("No snapshot from the primary at " + primary + ".");
+
+            Database snapshot = new CsvFileManager("snapshot from " + primary).read(reader.readBody(header));
+            taskService.getDatabase().replaceWith(snapshot.snapshot());
+            appliedSequence = header.sequence;
+            Frames.writeAck(channel, appliedSequence);
+        } catch (IOException | RuntimeException e) {
+            closeChannel();
+            throw e;
+        }
+    }
+
+    // applies the changes on a background thread, caughtUp runs after a reconnect replaced the data
+    public void start(Runnable caughtUp) {
+        thread = new Thread(() -> follow(caughtUp), "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        stopped = true;
+        closeChannel();
+        if (thread == null)
+            return;
+
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void follow(Runnable caughtUp) {
+        while (!stopped) {
+            try {
+                applyChanges();
+            } catch (IOException | RuntimeException e) {
+                if (!stopped)
+                    messages.accept("Replication from " + primary + " interrupted: " + e.getMessage());
+            }
+            closeChannel();
+
+            if (reconnect())
+                caughtUp.run();
+        }
+    }
+
+    // until the connection ends
+    private void applyChanges() throws IOException {
+        Frames.Header header;
+        while ((header = reader.readHeader()) != null) {
+            if (!header.type.equals(Frames.RECORDS))
+                throw new IOException("Unexpected " + header.type + " frame.");
+            if (header.sequence != appliedSequence + 1)
+                throw new IOException("Change " + header.sequence + " follows change " + appliedSequence + ".");
+
+            String records = new String(reader.readBody(header), StandardCharsets.UTF_8);
+            ChangeRecorder.replay(records, "change " + header.sequence + " from " + primary, taskService);
+            appliedSequence = header.sequence;
+            if (!reader.hasBuffered())
+                Frames.writeAck(channel, appliedSequence);
+        }
+        throw new EOFException("the primary closed the connection");
+    }
+
+    // false once stopped
+    private boolean reconnect() {
+        while (!stopped) {
+            try {
+                Thread.sleep(RECONNECT_DELAY);
+                connect();
+                messages.accept("Caught up with the primary at " + primary + " from a new snapshot.");
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            } catch (IOException | RuntimeException e) {
+                // the primary is down or restarting, tried again after the delay
+            }
+        }
+        return false;
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException e) {
+            // closed anyway
+        }
+    }
+}
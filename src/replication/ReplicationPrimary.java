@@ -0,0 +1,183 @@
+package replication;
+
+import data.DatabaseSnapshot;
+import io.file.ChangeRecorder;
+import io.file.CsvFileManager;
+import metrics.Metrics;
+import service.TaskService;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+ * Streams every change of a TaskService to the followers connected over TCP or a Unix domain socket, numbered in
+ * the order the changes were made. A new follower first gets a snapshot of all the data in the CSV file format,
+ * taken at the instant its stream of changes starts, so it misses nothing and gets nothing twice. The snapshot is
+ * CSV whatever the TaskService's FileManager is, and holds only the history not yet moved to the HistoryArchive:
+ * archived segments are never sent to followers.
+ * With SYNC acknowledgements a change returns only once every follower that loaded its snapshot applied it, and
+ * a follower that doesn't within ACK_TIMEOUT is dropped. A dropped follower reconnects and catches up again from
+ * a new snapshot, like a follower that fell too far behind with ASYNC acknowledgements.
+ */
+public class ReplicationPrimary extends ChangeRecorder {
+    private static final Duration ACK_TIMEOUT = Duration.ofSeconds(5);
+
+    private final TaskService taskService;
+    private final AckMode ackMode;
+    private final Consumer<String> messages;
+    private final List<FollowerSession> sessions = new CopyOnWriteArrayList<>();
+    private ServerSocketChannel serverChannel;
+    // guarded by this, the number of the last change
+    private long sequence;
+    // with SYNC acknowledgements, the last change of the thread that followers must still acknowledge
+    private final ThreadLocal<Long> unacknowledged = new ThreadLocal<>();
+
+    public ReplicationPrimary(TaskService taskService, AckMode ackMode, Consumer<String> messages) {
+        this.taskService = taskService;
+        this.ackMode = ackMode;
+        this.messages = messages;
+    }
+
+    public void start(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            // left behind by a primary that didn't stop cleanly
+            Files.deleteIfExists(unixAddress.getPath());
+            serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            serverChannel = ServerSocketChannel.open();
+        }
+        serverChannel.bind(address);
+
+        taskService.addOrderedListener(this);
+        Metrics.gauge("replication.followers", sessions::size);
+        Metrics.gauge("replication.sequence", this::getSequence);
+        Metrics.gauge("replication.maxLag", () -> {
+            long last = getSequence();
+            return sessions.stream()
+                    .mapToLong(session -> last - Math.max(session.getAcknowledged(), session.getSnapshotSequence()))
+                    .max()
+                    .orElse(0);
+        });
+
+        Thread acceptor = new Thread(this::acceptFollowers, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        messages.accept("Replicating to followers on " + address + " with " + ackMode + " acknowledgements.");
+    }
+
+    public void stop() {
+        try {
+            SocketAddress address = serverChannel.getLocalAddress();
+            serverChannel.close();
+            if (address instanceof UnixDomainSocketAddress unixAddress)
+                Files.deleteIfExists(unixAddress.getPath());
+        } catch (IOException e) {
+            // the followers are closed below anyway
+        }
+        sessions.forEach(session -> session.close("primary stopped"));
+    }
+
+    private synchronized long getSequence() {
+        return sequence;
+    }
+
+    private void acceptFollowers() {
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                return;
+            }
+
+            Thread thread = new Thread(() -> serve(channel), "replication-follower");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        FollowerSession session = new FollowerSession(channel, remoteName(channel), (closed, reason) -> {
+            sessions.remove(closed);
+            messages.accept("Follower " + closed + " disconnected: " + reason + ".");
+        });
+
+        // changes after the snapshot are queued while it is encoded and sent
+        DatabaseSnapshot snapshot = taskService.getDatabase().snapshot(() -> {
+            synchronized (this) {
+                session.startAt(sequence);
+                sessions.add(session);
+            }
+        });
+        byte[] content;
+        try {
+            content = CsvFileManager.encodeSnapshot(snapshot);
+        } catch (RuntimeException e) {
+            session.close("snapshot failed, " + e.getMessage());
+            return;
+        }
+        messages.accept("Follower " + session + " connected, sending a snapshot of " + content.length + " bytes.");
+        session.run(Frames.encode(Frames.SNAPSHOT, session.getSnapshotSequence(), content));
+    }
+
+    private static String remoteName(SocketChannel channel) {
+        try {
+            String name = channel.getRemoteAddress().toString();
+            return name.isEmpty() ? "on the local socket" : name;
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    // called while the change is made, so the order of the sequence numbers is that of the changes
+    @Override
+    protected void record(String records) {
+        synchronized (this) {
+            long recordSequence = ++sequence;
+            byte[] frame = Frames.encode(Frames.RECORDS, recordSequence, records.getBytes(StandardCharsets.UTF_8));
+            sessions.forEach(session -> session.send(frame));
+            if (ackMode == AckMode.SYNC)
+                unacknowledged.set(recordSequence);
+        }
+    }
+
+    /*
+     * The wait comes after the change, once other changes can be made, so while one change waits the next ones
+     * are already sent, and the followers acknowledge all of them at once.
+     */
+    @Override
+    public void changeCompleted() {
+        Long recordSequence = unacknowledged.get();
+        if (recordSequence == null)
+            return;
+
+        unacknowledged.remove();
+        awaitAcknowledgements(recordSequence);
+    }
+
+    private void awaitAcknowledgements(long recordSequence) {
+        long deadlineNanos = System.nanoTime() + ACK_TIMEOUT.toNanos();
+        for (FollowerSession session : sessions) {
+            if (!session.isCaughtUp())
+                continue;
+
+            try {
+                if (!session.awaitAcknowledged(recordSequence, deadlineNanos))
+                    session.close("no acknowledgement within " + ACK_TIMEOUT.toSeconds() + " seconds");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import data.Status;
+import data.Task;
+import data.TaskPage;
+import service.TaskService;
+
+import java.io.IOException;
+import java.util.Map;
+
+// GET /history lists ended and failed tasks, a page of them with ?offset=&limit=, only DONE or FAILED ones
+// with ?status=, DELETE /history clears them
+class HistoryHandler implements HttpHandler {
+    private static final int PAGE_SIZE = 1000;
+
+    private final TaskService taskService;
+
+    HistoryHandler(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> printHistory(exchange, Requests.parameters(exchange));
+                case "DELETE" -> {
+                    taskService.clearHistory();
+                    Requests.sendMessage(exchange, Requests.OK, "History deleted successfully.");
+                }
+                default -> Requests.sendMessage(exchange, Requests.METHOD_NOT_ALLOWED, "Use GET or DELETE.");
+            }
+        } catch (NumberFormatException e) {
+            Requests.sendMessage(exchange, Requests.BAD_REQUEST, "Incorrect number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            Requests.sendMessage(exchange, Requests.BAD_REQUEST, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // the whole history, or one page of it with ?offset= and ?limit=
+    private void printHistory(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        String status = parameters.get("status");
+        if (status != null) {
+            printHistoryByStatus(exchange, readStatus(status), parameters);
+            return;
+        }
+        if (!parameters.containsKey("limit")) {
+            printAllHistory(exchange);
+            return;
+        }
+
+        TaskPage page = taskService.getHistoryPage(Integer.parseInt(parameters.getOrDefault("offset", "0")),
+                Integer.parseInt(parameters.get("limit")));
+        Requests.sendPage(exchange, page);
+    }
+
+    // read from the status index, all of them unless ?limit= is given
+    private void printHistoryByStatus(HttpExchange exchange, Status status, Map<String, String> parameters)
+            throws IOException {
+        TaskPage page = taskService.getHistoryPage(status, Integer.parseInt(parameters.getOrDefault("offset", "0")),
+                Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE))));
+        Requests.sendPage(exchange, page);
+    }
+
+    private static Status readStatus(String value) {
+        try {
+            return Status.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid status: " + value + ".");
+        }
+    }
+
+    // streamed page by page, so archived history is never loaded all at once
+    private void printAllHistory(HttpExchange exchange) throws IOException {
+        JsonWriter json = Requests.startJson(exchange, Requests.OK).beginArray();
+        TaskPage page;
+        int offset = 0;
+
+        do {
+            page = taskService.getHistoryPage(offset, PAGE_SIZE);
+            for (Task task : page.getTasks()) {
+                json.task(task);
+            }
+            offset += page.getTasks().size();
+        } while (page.hasNext());
+
+        json.endArray().flush();
+    }
+}
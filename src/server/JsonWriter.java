@@ -0,0 +1,148 @@
+package server;
+
+import data.Task;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// writes JSON straight to the response stream, without building a document in memory
+class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_DEPTH = 32;
+
+    private final Writer writer;
+    // whether the object or array on each nesting level already has an element
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    JsonWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null)
+            writer.write("null");
+        else
+            string(value);
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        separate();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter value(double value) throws IOException {
+        separate();
+        writer.write(Double.toString(value));
+        return this;
+    }
+
+    JsonWriter value(Object value) throws IOException {
+        return value(value == null ? null : value.toString());
+    }
+
+    JsonWriter task(Task task) throws IOException {
+        return beginObject()
+                .name("id").value(task.getId())
+                .name("name").value(task.getName())
+                .name("description").value(task.getDescription())
+                .name("creationDate").value(task.getCreationDate())
+                .name("deadline").value(task.getDeadline())
+                .name("status").value(task.getStatus().name())
+                .name("priority").value(task.getPriority().name())
+                .endObject();
+    }
+
+    JsonWriter tasks(Iterable<Task> tasks) throws IOException {
+        beginArray();
+        for (Task task : tasks) {
+            task(task);
+        }
+        return endArray();
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        writer.write(bracket);
+        hasElements[++depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        writer.write(bracket);
+        depth--;
+        return this;
+    }
+
+    // commas between elements, nothing between a name and its value
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasElements[depth])
+            writer.write(',');
+        hasElements[depth] = true;
+    }
+
+    private void string(String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\')
+                continue;
+
+            writer.write(value, start, i - start);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    writer.write("\\u00");
+                    writer.write(HEX[c >> 4]);
+                    writer.write(HEX[c & 0xF]);
+                }
+            }
+            start = i + 1;
+        }
+
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
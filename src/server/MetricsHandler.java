@@ -0,0 +1,55 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.Timer;
+
+import java.io.IOException;
+import java.util.Map;
+
+// GET /metrics returns every timer with its percentiles in nanoseconds, the counters and the gauges
+class MetricsHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (exchange.getRequestMethod().equals("GET"))
+                printMetrics(exchange);
+            else
+                Requests.sendMessage(exchange, Requests.METHOD_NOT_ALLOWED, "Use GET.");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void printMetrics(HttpExchange exchange) throws IOException {
+        JsonWriter json = Requests.startJson(exchange, Requests.OK).beginObject();
+
+        json.name("timers").beginObject();
+        for (Map.Entry<String, Timer> timer : Metrics.getTimers().entrySet()) {
+            LatencyHistogram histogram = timer.getValue().getHistogram();
+            json.name(timer.getKey()).beginObject()
+                    .name("count").value(histogram.getCount())
+                    .name("mean").value(histogram.getMean());
+            for (double percentile : Metrics.getPercentiles()) {
+                json.name("p" + Metrics.formatPercentile(percentile)).value(histogram.getPercentile(percentile));
+            }
+            json.name("max").value(histogram.getMax()).endObject();
+        }
+        json.endObject();
+
+        json.name("counters").beginObject();
+        for (Map.Entry<String, Long> counter : Metrics.getCounters().entrySet()) {
+            json.name(counter.getKey()).value(counter.getValue().longValue());
+        }
+        json.endObject();
+
+        json.name("gauges").beginObject();
+        for (Map.Entry<String, Double> gauge : Metrics.getGauges().entrySet()) {
+            json.name(gauge.getKey()).value(gauge.getValue().doubleValue());
+        }
+        json.endObject().endObject().flush();
+    }
+}
@@ -0,0 +1,73 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import data.TaskPage;
+
+import java.io.*;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// parameter parsing and response writing shared by the handlers
+class Requests {
+    static final int OK = 200;
+    static final int CREATED = 201;
+    static final int BAD_REQUEST = 400;
+    static final int NOT_FOUND = 404;
+    static final int METHOD_NOT_ALLOWED = 405;
+
+    private Requests() {
+    }
+
+    // query parameters, plus form parameters from the body of POST and PUT requests
+    static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parse(exchange.getRequestURI().getRawQuery(), parameters);
+
+        String method = exchange.getRequestMethod();
+        if (method.equals("POST") || method.equals("PUT")) {
+            try (InputStream body = exchange.getRequestBody()) {
+                parse(new String(body.readAllBytes(), StandardCharsets.UTF_8), parameters);
+            }
+        }
+        return parameters;
+    }
+
+    private static void parse(String encoded, Map<String, String> parameters) {
+        if (encoded == null || encoded.isEmpty())
+            return;
+
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    // the body is streamed with chunked encoding, so its length doesn't have to be known up front
+    static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream body = exchange.getResponseBody();
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8)));
+    }
+
+    static void sendPage(HttpExchange exchange, TaskPage page) throws IOException {
+        startJson(exchange, OK).beginObject()
+                .name("offset").value(page.getOffset())
+                .name("total").value(page.getTotal())
+                .name("tasks").tasks(page.getTasks())
+                .endObject()
+                .flush();
+    }
+
+    static void sendMessage(HttpExchange exchange, int status, String message) throws IOException {
+        JsonWriter json = startJson(exchange, status);
+        json.beginObject()
+                .name(status < BAD_REQUEST ? "message" : "error").value(message)
+                .endObject()
+                .flush();
+    }
+}
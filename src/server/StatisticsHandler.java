@@ -0,0 +1,87 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import data.Database;
+import data.Priority;
+import data.TaskStatistics;
+import data.TaskStatistics.Counters;
+import service.AutosaveScheduler;
+import service.TaskService;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+// GET /statistics returns the lifetime, rolling and per priority counters and the autosave figures,
+// DELETE /statistics resets the task counters
+class StatisticsHandler implements HttpHandler {
+    private final TaskService taskService;
+    // null when the file manager journals every change instead
+    private final AutosaveScheduler autosave;
+
+    StatisticsHandler(TaskService taskService, AutosaveScheduler autosave) {
+        this.taskService = taskService;
+        this.autosave = autosave;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> printStatistics(exchange);
+                case "DELETE" -> {
+                    taskService.clearStatistics();
+                    Requests.sendMessage(exchange, Requests.OK, "Statistics cleared successfully.");
+                }
+                default -> Requests.sendMessage(exchange, Requests.METHOD_NOT_ALLOWED, "Use GET or DELETE.");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void printStatistics(HttpExchange exchange) throws IOException {
+        Database database = taskService.getDatabase();
+        TaskStatistics statistics = database.getStatistics();
+        LocalDate today = LocalDate.now();
+
+        JsonWriter json = Requests.startJson(exchange, Requests.OK)
+                .beginObject()
+                .name("tasksCreated").value(database.getTasksCreated())
+                .name("tasksCompleted").value(database.getTasksCompleted())
+                .name("tasksFailed").value(database.getTasksFailed());
+        counters(json.name("today"), statistics.getLastDays(today, 1));
+        counters(json.name("last7Days"), statistics.getLastDays(today, 7));
+        counters(json.name("thisWeek"), statistics.getWeek(today));
+        counters(json.name("last" + TaskStatistics.DAYS_KEPT + "Days"), statistics.getLastDays(today, TaskStatistics.DAYS_KEPT));
+
+        json.name("priorities").beginObject();
+        for (Priority priority : Priority.values()) {
+            counters(json.name(priority.name()), statistics.getPriority(priority));
+        }
+        json.endObject();
+
+        if (autosave != null)
+            json.name("autosave").beginObject()
+                    .name("saves").value(autosave.getSaves())
+                    .name("failedSaves").value(autosave.getFailedSaves())
+                    .name("bytesWritten").value(autosave.getSavedBytes())
+                    .name("lastSaveMillis").value(autosave.getLastSaveTime().toMillis())
+                    .name("averageSaveMillis").value(autosave.getAverageSaveTime().toMillis())
+                    .name("maxSaveMillis").value(autosave.getMaxSaveTime().toMillis())
+                    .name("pendingChanges").value(autosave.getPendingChanges())
+                    .endObject();
+        json.endObject().flush();
+    }
+
+    private void counters(JsonWriter json, Counters counters) throws IOException {
+        json.beginObject()
+                .name("created").value(counters.getCreated())
+                .name("completed").value(counters.getCompleted())
+                .name("failed").value(counters.getFailed())
+                .name("completionRate").value(counters.getCompletionRate())
+                .name("failureRate").value(counters.getFailureRate())
+                .name("averageLeadDays").value(counters.getAverageLeadDays())
+                .endObject();
+    }
+}
@@ -0,0 +1,190 @@
+package server;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import data.Database;
+import exception.FileReadException;
+import exception.FileWriteException;
+import io.file.FileManager;
+import io.file.SegmentedHistoryArchive;
+import io.file.TimedFileManager;
+import io.file.WrittenBytes;
+import metrics.Metrics;
+import replication.AckMode;
+import replication.ReplicationFollower;
+import replication.ReplicationPrimary;
+import service.AutosaveScheduler;
+import service.DeadlineExpiryScheduler;
+import service.TaskListener;
+import service.TaskService;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// headless mode, exposes the menu options as a JSON API served from virtual threads
+public class TaskServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final FileManager fileManager;
+    private final TaskService taskService;
+    // null for followers, whose tasks are failed by their primary
+    private final DeadlineExpiryScheduler expiryScheduler;
+    // null for journaling file managers, which need no autosave
+    private final AutosaveScheduler autosave;
+    // null unless the server replicates its data to followers, or is one
+    private ReplicationPrimary primary;
+    private final ReplicationFollower follower;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    // a port on the loopback interface, so only this machine can reach the server, or host:port, where 0.0.0.0
+    // listens on every interface
+    public static InetSocketAddress parseAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0)
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+    }
+
+    public TaskServer(FileManager selectedFileManager) {
+        this(selectedFileManager, null);
+    }
+
+    /*
+     * A warm standby: the data comes from the follower's primary instead of the file, and the server answers only
+     * queries. It is still saved to the file, so once the primary is lost the follower can be restarted as a
+     * primary with the same file manager.
+     */
+    public TaskServer(FileManager selectedFileManager, ReplicationFollower follower) {
+        this.fileManager = new TimedFileManager(selectedFileManager);
+        this.follower = follower;
+
+        if (follower == null) {
+            taskService = new TaskService(readDatabase());
+            // history beyond the recent tail is kept in compressed segments on disk
+            taskService.getDatabase().setHistoryArchive(SegmentedHistoryArchive.of(fileManager));
+        } else {
+            taskService = follower.getTaskService();
+            // the journal carries on the numbering of the files already there, which the first save replaces
+            if (selectedFileManager instanceof TaskListener)
+                readPreviousFiles();
+        }
+        if (selectedFileManager instanceof TaskListener listener) {
+            taskService.addListener(listener);
+            autosave = null;
+        } else {
+            autosave = new AutosaveScheduler(taskService, fileManager::saveToFile, AutosaveScheduler.DEFAULT_INTERVAL,
+                    WrittenBytes::total, e -> System.out.println("Autosave failed: " + e.getMessage()));
+            taskService.addListener(autosave);
+            autosave.start();
+        }
+        taskService.registerGauges();
+        Metrics.gauge("files.bytesWritten", WrittenBytes::total);
+        if (follower == null) {
+            expiryScheduler = new DeadlineExpiryScheduler(taskService, TaskServer::printExpiredTasks,
+                    e -> System.out.println("Failing overdue tasks failed: " + e.getMessage()));
+            expiryScheduler.start();
+        } else {
+            expiryScheduler = null;
+            Metrics.gauge("replication.appliedSequence", follower::getAppliedSequence);
+        }
+    }
+
+    private static void printExpiredTasks(int expiredTasks) {
+        if (expiredTasks > 0)
+            System.out.println(expiredTasks + " task(s) passed their deadline and were marked as failed.");
+    }
+
+    private Database readDatabase() {
+        try {
+            Database database = fileManager.readFromFile();
+            System.out.println("Data from file loaded successfully.");
+            return database;
+        } catch (FileReadException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Initializes new database.");
+            return new Database();
+        }
+    }
+
+    private void readPreviousFiles() {
+        try {
+            fileManager.readFromFile();
+        } catch (FileReadException | IllegalArgumentException e) {
+            // nothing saved yet
+        }
+    }
+
+    // every change is sent to the followers connecting to the address from now on
+    public void replicate(SocketAddress address, AckMode ackMode) throws IOException {
+        primary = new ReplicationPrimary(taskService, ackMode, System.out::println);
+        primary.start(address);
+    }
+
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/tasks", queries(new TasksHandler(taskService)));
+        server.createContext("/history", queries(new HistoryHandler(taskService)));
+        server.createContext("/statistics", queries(new StatisticsHandler(taskService, autosave)));
+        server.createContext("/metrics", new MetricsHandler());
+        server.start();
+        if (follower != null) {
+            saveCaughtUpData();
+            follower.start(this::saveCaughtUpData);
+        }
+        System.out.println("Server listening on " + address.getHostString() + ":" + address.getPort()
+                + (follower != null ? ", answering queries only." : "."));
+    }
+
+    // a follower's data changes only through its primary
+    private HttpHandler queries(HttpHandler handler) {
+        if (follower == null)
+            return handler;
+
+        return exchange -> {
+            if (exchange.getRequestMethod().equals("GET")) {
+                handler.handle(exchange);
+                return;
+            }
+            try (exchange) {
+                Requests.sendMessage(exchange, Requests.METHOD_NOT_ALLOWED,
+                        "This server is a replication follower, make changes on its primary.");
+            }
+        };
+    }
+
+    // a snapshot from the primary replaces the data without telling the listeners, so it is saved right away
+    private void saveCaughtUpData() {
+        try {
+            taskService.save(fileManager::saveToFile);
+        } catch (FileWriteException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public void stop() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.close();
+        if (primary != null)
+            primary.stop();
+        if (follower != null)
+            follower.stop();
+        if (expiryScheduler != null)
+            expiryScheduler.stop();
+        if (autosave != null)
+            autosave.stop();
+
+        try {
+            taskService.save(fileManager::saveToFile);
+            System.out.println("Data to file exported successfully.");
+        } catch (FileWriteException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
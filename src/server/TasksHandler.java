@@ -0,0 +1,275 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import data.Priority;
+import data.Task;
+import data.TaskPage;
+import exception.DeadlineDateMustBeFuture;
+import exception.InvalidPriorityException;
+import exception.InvalidTaskTextException;
+import exception.TaskNameCantBeEmptyOrNull;
+import exception.TaskNotFoundException;
+import service.TaskService;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * GET    /tasks                      all tasks grouped by date, or one day with ?date=
+ * GET    /tasks?priority=            tasks of one priority in date order, paged with ?offset=&limit=
+ * GET    /tasks?from=&to=            tasks grouped by date within the range, either end may be left open
+ * GET    /tasks/counts?from=&to=     number of tasks per date within the range
+ * GET    /tasks/week?date=, /tasks/month?month=   agenda of the week (Monday to Sunday) or month (yyyy-MM),
+ *                                    by default the current one
+ * POST   /tasks                      add a task (name, description, deadline, priority)
+ * GET    /tasks/today, /tasks/tomorrow
+ * POST   /tasks/top                  end the top task of today, or of ?date=
+ * GET    /tasks/search?name=         find by name, ?ranked=true also searches descriptions
+ * GET    /tasks/{date}/{number}      full task details
+ * PUT    /tasks/{date}/{number}      edit, only the given fields change
+ * DELETE /tasks/{date}/{number}
+ * POST   /tasks/{date}/{number}/end
+ * GET, PUT, DELETE /tasks/{id} and POST /tasks/{id}/end do the same for the task with the id
+ * Dates use the yyyy-MM-dd format, task numbers start at 1 like in the console menu.
+ * Task ids stay the same across edits and restarts, unlike the numbers, which shift as tasks are removed.
+ */
+class TasksHandler implements HttpHandler {
+    private final TaskService taskService;
+
+    TasksHandler(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String[] segments = path.replaceFirst("^/tasks/?", "").split("/");
+            if (segments.length == 1 && segments[0].isEmpty())
+                segments = new String[0];
+
+            route(exchange, exchange.getRequestMethod(), segments, Requests.parameters(exchange));
+        } catch (DateTimeParseException e) {
+            Requests.sendMessage(exchange, Requests.BAD_REQUEST, "Incorrect date, required format (yyyy-MM-dd).");
+        } catch (NumberFormatException e) {
+            Requests.sendMessage(exchange, Requests.BAD_REQUEST, "Incorrect number: " + e.getMessage());
+        } catch (TaskNameCantBeEmptyOrNull | InvalidTaskTextException | DeadlineDateMustBeFuture |
+                 InvalidPriorityException e) {
+            Requests.sendMessage(exchange, Requests.BAD_REQUEST, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            Requests.sendMessage(exchange, Requests.BAD_REQUEST, e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            Requests.sendMessage(exchange, Requests.NOT_FOUND, "Incorrect task number.");
+        } catch (TaskNotFoundException e) {
+            Requests.sendMessage(exchange, Requests.NOT_FOUND, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String[] segments, Map<String, String> parameters)
+            throws IOException {
+        boolean byId = segments.length > 0 && isTaskId(segments[0]);
+        String route = method + " " + switch (segments.length) {
+            case 0 -> "";
+            case 1 -> byId ? "task" : segments[0];
+            case 2 -> byId ? "task/" + segments[1] : "task";
+            case 3 -> "task/" + segments[2];
+            default -> "unknown";
+        };
+
+        switch (route) {
+            case "GET " -> printTasks(exchange, parameters);
+            case "POST " -> addTask(exchange, parameters);
+            case "GET today" -> printTasksForDate(exchange, LocalDate.now());
+            case "GET tomorrow" -> printTasksForDate(exchange, LocalDate.now().plusDays(1));
+            case "POST top" -> endTopTask(exchange, parameters);
+            case "GET search" -> findTasks(exchange, parameters);
+            case "GET counts" -> printTaskCounts(exchange, parameters);
+            case "GET week" -> printDays(exchange, taskService.getWeekAgenda(readDate(parameters, "date")));
+            case "GET month" -> printDays(exchange, taskService.getMonthAgenda(parameters.containsKey("month")
+                    ? YearMonth.parse(parameters.get("month")) : YearMonth.now()));
+            case "GET task" -> printTask(exchange, findTask(segments));
+            case "PUT task" -> editTask(exchange, findTask(segments), parameters);
+            case "DELETE task" -> deleteTask(exchange, findTask(segments));
+            case "POST task/end" -> endTask(exchange, findTask(segments));
+            default -> Requests.sendMessage(exchange, Requests.METHOD_NOT_ALLOWED, "Unsupported request " + method + " "
+                    + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void printTasks(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        String priority = parameters.get("priority");
+        if (priority != null) {
+            TaskPage page = taskService.getTasksPage(readPriority(priority),
+                    Integer.parseInt(parameters.getOrDefault("offset", "0")),
+                    Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE))));
+            Requests.sendPage(exchange, page);
+            return;
+        }
+
+        String date = parameters.get("date");
+        if (date != null) {
+            printTasksForDate(exchange, LocalDate.parse(date));
+            return;
+        }
+
+        if (parameters.containsKey("from") || parameters.containsKey("to")) {
+            printDays(exchange, taskService.getTasksBetween(readOptionalDate(parameters, "from"),
+                    readOptionalDate(parameters, "to")));
+            return;
+        }
+
+        // a snapshot, so the listing is one consistent version however long it takes to send
+        printDays(exchange, taskService.snapshot().getTasks());
+    }
+
+    // written straight from the map, which for a range is a view of the database
+    private void printDays(HttpExchange exchange, Map<LocalDate, List<Task>> days) throws IOException {
+        JsonWriter json = Requests.startJson(exchange, Requests.OK).beginObject();
+        for (Map.Entry<LocalDate, List<Task>> entry : days.entrySet()) {
+            json.name(entry.getKey().toString()).tasks(entry.getValue());
+        }
+        json.endObject().flush();
+    }
+
+    private void printTaskCounts(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        JsonWriter json = Requests.startJson(exchange, Requests.OK).beginObject();
+        for (Map.Entry<LocalDate, Integer> entry : taskService.countTasksPerDay(readOptionalDate(parameters, "from"),
+                readOptionalDate(parameters, "to")).entrySet()) {
+            json.name(entry.getKey().toString()).value(entry.getValue().longValue());
+        }
+        json.endObject().flush();
+    }
+
+    private static LocalDate readOptionalDate(Map<String, String> parameters, String name) {
+        String date = parameters.get(name);
+        return date == null ? null : LocalDate.parse(date);
+    }
+
+    // today if the parameter is missing
+    private static LocalDate readDate(Map<String, String> parameters, String name) {
+        String date = parameters.get(name);
+        return date == null ? LocalDate.now() : LocalDate.parse(date);
+    }
+
+    private void printTasksForDate(HttpExchange exchange, LocalDate date) throws IOException {
+        List<Task> tasks = taskService.findTasksByDate(date);
+        Requests.startJson(exchange, Requests.OK)
+                .tasks(tasks == null ? List.of() : tasks)
+                .flush();
+    }
+
+    private void addTask(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        Task task = new Task(parameters.get("name"), parameters.getOrDefault("description", ""),
+                readDeadline(required(parameters, "deadline")), readPriority(required(parameters, "priority")));
+        taskService.addTask(task);
+
+        Requests.startJson(exchange, Requests.CREATED).task(task).flush();
+    }
+
+    private void endTopTask(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        String date = parameters.get("date");
+        Task task = taskService.endAndReturnFirstTask(date == null ? LocalDate.now() : LocalDate.parse(date));
+
+        if (task == null)
+            Requests.sendMessage(exchange, Requests.NOT_FOUND, "The task list is empty.");
+        else
+            Requests.startJson(exchange, Requests.OK).task(task).flush();
+    }
+
+    private void findTasks(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        String name = parameters.getOrDefault("name", "");
+        Collection<Task> tasks = Boolean.parseBoolean(parameters.get("ranked"))
+                ? taskService.findTaskByNameRanked(name)
+                : taskService.findTaskByName(name);
+
+        Requests.startJson(exchange, Requests.OK).tasks(tasks).flush();
+    }
+
+    private void printTask(HttpExchange exchange, Task task) throws IOException {
+        Requests.startJson(exchange, Requests.OK).task(task).flush();
+    }
+
+    private void editTask(HttpExchange exchange, Task oldTask, Map<String, String> parameters) throws IOException {
+        Task editedTask = new Task(oldTask); //copy old task data
+
+        if (parameters.containsKey("deadline"))
+            editedTask.setDeadline(readDeadline(parameters.get("deadline")));
+        if (parameters.containsKey("priority"))
+            editedTask.setPriority(readPriority(parameters.get("priority")));
+        if (parameters.containsKey("name"))
+            editedTask.setName(parameters.get("name"));
+        if (parameters.containsKey("description"))
+            editedTask.setDescription(parameters.get("description"));
+
+        if (!taskService.replaceTask(oldTask, editedTask)) {
+            Requests.sendMessage(exchange, Requests.NOT_FOUND, "The task was already removed.");
+            return;
+        }
+        Requests.startJson(exchange, Requests.OK).task(editedTask).flush();
+    }
+
+    private void deleteTask(HttpExchange exchange, Task task) throws IOException {
+        if (taskService.removeTask(task))
+            Requests.sendMessage(exchange, Requests.OK, "Task \"" + task.getName() + "\" deleted successfully.");
+        else
+            Requests.sendMessage(exchange, Requests.NOT_FOUND, "The task was already removed.");
+    }
+
+    private void endTask(HttpExchange exchange, Task task) throws IOException {
+        Task endedTask = taskService.endTask(task);
+        if (endedTask != null)
+            Requests.startJson(exchange, Requests.OK).task(endedTask).flush();
+        else
+            Requests.sendMessage(exchange, Requests.NOT_FOUND, "The task was already removed.");
+    }
+
+    private Task findTask(String[] segments) {
+        if (!isTaskId(segments[0]))
+            return taskService.getTaskByDateAndIndex(LocalDate.parse(segments[0]), Integer.parseInt(segments[1]) - 1);
+
+        long id = Long.parseLong(segments[0]);
+        Task task = taskService.getTaskById(id);
+        if (task == null)
+            throw new TaskNotFoundException("No task with id " + id + ".");
+        return task;
+    }
+
+    // dates contain dashes, ids are digits only
+    private static boolean isTaskId(String segment) {
+        return !segment.isEmpty() && segment.chars().allMatch(Character::isDigit);
+    }
+
+    private static LocalDate readDeadline(String value) {
+        LocalDate deadline = LocalDate.parse(value);
+        if (deadline.isBefore(LocalDate.now()))
+            throw new DeadlineDateMustBeFuture("Deadline date must be in the future.");
+        return deadline;
+    }
+
+    // priority number as in the console menu, or its name
+    private static Priority readPriority(String value) {
+        if (!value.isEmpty() && Character.isDigit(value.charAt(0)))
+            return Priority.createFromInt(Integer.parseInt(value));
+
+        try {
+            return Priority.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPriorityException("Invalid priority: " + value + ".");
+        }
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing parameter " + name + ".");
+        return value;
+    }
+}
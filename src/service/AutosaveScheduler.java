@@ -0,0 +1,183 @@
+package service;
+
+import data.Database;
+import data.Task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/*
+ * Saves the database from a single background thread, at most once per interval and only if it changed.
+ * Listener calls just count the change, so the threads changing tasks never wait for the disk, and any
+ * number of changes made between two saves is written by one save. A save that takes longer than the
+ * interval pushes the next one back to SLOW_SAVE_FACTOR times its duration, so a slow disk is written
+ * less often instead of being kept busy all the time.
+ */
+public class AutosaveScheduler implements TaskListener {
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(5);
+    private static final int SLOW_SAVE_FACTOR = 2;
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    private final TaskService taskService;
+    private final Consumer<Database> saver;
+    private final LongSupplier bytesWritten;
+    private final Consumer<RuntimeException> failureListener;
+    private final long intervalNanos;
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // changes not picked up by a save yet
+    private final AtomicLong pendingChanges = new AtomicLong();
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder failedSaves = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder totalSaveNanos = new LongAdder();
+    private volatile long lastSaveNanos;
+    private volatile long maxSaveNanos;
+
+    // bytesWritten is a running total of bytes written to disk, sampled around each save
+    public AutosaveScheduler(TaskService taskService, Consumer<Database> saver, Duration interval,
+                             LongSupplier bytesWritten, Consumer<RuntimeException> failureListener) {
+        this.taskService = taskService;
+        this.saver = saver;
+        this.intervalNanos = interval.toNanos();
+        this.bytesWritten = bytesWritten;
+        this.failureListener = failureListener;
+        // stopping drops the next scheduled save but lets a running one finish
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public void start() {
+        scheduleNextSave(intervalNanos);
+    }
+
+    // waits for a save in progress, so the caller can make the final save without running into it
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getPendingChanges() {
+        return pendingChanges.get();
+    }
+
+    public long getSaves() {
+        return saves.sum();
+    }
+
+    public long getFailedSaves() {
+        return failedSaves.sum();
+    }
+
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public Duration getLastSaveTime() {
+        return Duration.ofNanos(lastSaveNanos);
+    }
+
+    public Duration getMaxSaveTime() {
+        return Duration.ofNanos(maxSaveNanos);
+    }
+
+    public Duration getAverageSaveTime() {
+        long count = saves.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalSaveNanos.sum() / count);
+    }
+
+    @Override
+    public void taskAdded(Task task, LocalDate date) {
+        pendingChanges.incrementAndGet();
+    }
+
+    @Override
+    public void tasksAdded(List<Task> tasks, LocalDate date) {
+        pendingChanges.addAndGet(tasks.size());
+    }
+
+    @Override
+    public void taskAddedSilently(Task task) {
+        pendingChanges.incrementAndGet();
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        pendingChanges.incrementAndGet();
+    }
+
+    @Override
+    public void taskEnded(Task task, LocalDate date) {
+        pendingChanges.incrementAndGet();
+    }
+
+    @Override
+    public void taskFailed(Task task, LocalDate date) {
+        pendingChanges.incrementAndGet();
+    }
+
+    @Override
+    public void historyCleared() {
+        pendingChanges.incrementAndGet();
+    }
+
+    @Override
+    public void statisticsCleared() {
+        pendingChanges.incrementAndGet();
+    }
+
+    private void scheduleNextSave(long delayNanos) {
+        try {
+            executor.schedule(this::saveIfChanged, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // stopped, the owner makes the final save
+        }
+    }
+
+    private void saveIfChanged() {
+        long delayNanos = intervalNanos;
+
+        try {
+            // changes made from here on are counted for the next save
+            long changes = pendingChanges.getAndSet(0);
+            if (changes == 0)
+                return;
+
+            long bytesBefore = bytesWritten.getAsLong();
+            long start = System.nanoTime();
+            try {
+                taskService.save(saver);
+            } catch (RuntimeException e) {
+                pendingChanges.addAndGet(changes);
+                failedSaves.increment();
+                failureListener.accept(e);
+                return;
+            }
+
+            long saveNanos = System.nanoTime() - start;
+            saves.increment();
+            savedBytes.add(bytesWritten.getAsLong() - bytesBefore);
+            totalSaveNanos.add(saveNanos);
+            lastSaveNanos = saveNanos;
+            maxSaveNanos = Math.max(maxSaveNanos, saveNanos);
+            delayNanos = Math.max(intervalNanos, SLOW_SAVE_FACTOR * saveNanos);
+        } finally {
+            scheduleNextSave(delayNanos);
+        }
+    }
+}
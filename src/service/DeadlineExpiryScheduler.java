@@ -0,0 +1,66 @@
+package service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// fails overdue tasks on start and again after every midnight, reporting how many expired in each sweep
+// and every sweep that failed, e.g. because the journal couldn't be written
+public class DeadlineExpiryScheduler {
+    private final TaskService taskService;
+    private final IntConsumer sweepListener;
+    private final Consumer<RuntimeException> failureListener;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deadline-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeadlineExpiryScheduler(TaskService taskService, IntConsumer sweepListener,
+                                   Consumer<RuntimeException> failureListener) {
+        this.taskService = taskService;
+        this.sweepListener = sweepListener;
+        this.failureListener = failureListener;
+    }
+
+    // the first sweep runs right away
+    public void start() {
+        failOverdueTasks();
+        scheduleNextSweep();
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // rescheduled after every sweep, so days that are not 24 hours long don't shift the sweep away from midnight
+    private void scheduleNextSweep() {
+        LocalDateTime nextMidnight = LocalDate.now().plusDays(1).atStartOfDay();
+        long delay = Duration.between(LocalDateTime.now(), nextMidnight).toMillis();
+        executor.schedule(this::sweep, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void sweep() {
+        try {
+            failOverdueTasks();
+        } finally {
+            scheduleNextSweep();
+        }
+    }
+
+    private void failOverdueTasks() {
+        int expiredTasks;
+        try {
+            expiredTasks = taskService.failOverdueTasks(LocalDate.now());
+        } catch (RuntimeException e) {
+            failureListener.accept(e);
+            return;
+        }
+        sweepListener.accept(expiredTasks);
+    }
+}
@@ -0,0 +1,27 @@
+package service;
+
+import data.Task;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// notified after every TaskService mutation, e.g. to journal it; date is the day the statistics counted it on
+public interface TaskListener {
+    void taskAdded(Task task, LocalDate date);
+    void taskAddedSilently(Task task);
+    void taskRemoved(Task task);
+    void taskEnded(Task task, LocalDate date);
+    void taskFailed(Task task, LocalDate date);
+    void historyCleared();
+    void statisticsCleared();
+
+    // bulk imports, listeners can record them in one go
+    default void tasksAdded(List<Task> tasks, LocalDate date) {
+        tasks.forEach(task -> taskAdded(task, date));
+    }
+
+    // after the change and the calls above, once other changes no longer wait for it,
+    // e.g. to write the journal or to wait until followers applied it
+    default void changeCompleted() {
+    }
+}
@@ -1,106 +1,387 @@
 package service;
 
 import data.Database;
+import data.DatabaseSnapshot;
+import data.Priority;
 import data.Status;
 import data.Task;
+import data.TaskPage;
+import data.TaskStatistics;
+import metrics.Metrics;
+import metrics.Timer;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class TaskService {
+    private static final Timer SAVE = Metrics.timer("TaskService.save");
+    private static final Timer ADD_TASK = Metrics.timer("TaskService.addTask");
+    private static final Timer ADD_TASKS = Metrics.timer("TaskService.addTasks");
+    private static final Timer REMOVE_TASK = Metrics.timer("TaskService.removeTask");
+    private static final Timer END_TASK = Metrics.timer("TaskService.endTask");
+    private static final Timer FAIL_TASK = Metrics.timer("TaskService.failTask");
+    private static final Timer FAIL_OVERDUE_TASKS = Metrics.timer("TaskService.failOverdueTasks");
+    private static final Timer FIND_TASK_BY_NAME = Metrics.timer("TaskService.findTaskByName");
+    private static final Timer FIND_TASK_BY_NAME_RANKED = Metrics.timer("TaskService.findTaskByNameRanked");
+    private static final Timer GET_TASKS_PAGE = Metrics.timer("TaskService.getTasksPage");
+    private static final Timer GET_HISTORY_PAGE = Metrics.timer("TaskService.getHistoryPage");
+    private static final Timer GET_TASKS_PAGE_BY_PRIORITY = Metrics.timer("TaskService.getTasksPageByPriority");
+    private static final Timer GET_HISTORY_PAGE_BY_STATUS = Metrics.timer("TaskService.getHistoryPageByStatus");
+    private static final Timer GET_TASKS_PAGE_BETWEEN = Metrics.timer("TaskService.getTasksPageBetween");
+
     private final Database database;
+    private final List<TaskListener> listeners = new CopyOnWriteArrayList<>();
+    // taken by every change once there is an ordered listener
+    private final ReentrantLock changeOrder = new ReentrantLock();
+    private volatile boolean ordered;
 
     public TaskService(Database database) {
         this.database = database;
     }
 
+    public void addListener(TaskListener listener) {
+        listeners.add(listener);
+    }
+
+    /*
+     * For listeners that apply the changes elsewhere, e.g. replication followers, which must get them in the order
+     * they were made. Changes of different days otherwise run in parallel and may reach the listeners in another
+     * order, so from then on they are made one at a time.
+     */
+    public void addOrderedListener(TaskListener listener) {
+        ordered = true;
+        listeners.add(listener);
+    }
+
+    // a change and its listeners, atomic for snapshots
+    private <T> T change(Supplier<T> change) {
+        T result;
+        if (!ordered) {
+            result = database.atomically(change);
+        } else {
+            changeOrder.lock();
+            try {
+                result = database.atomically(change);
+            } finally {
+                changeOrder.unlock();
+            }
+        }
+        // a change made of others, e.g. an edit, completes once as a whole
+        if (!database.isChanging())
+            listeners.forEach(TaskListener::changeCompleted);
+        return result;
+    }
+
+    private void runChange(Runnable change) {
+        change(() -> {
+            change.run();
+            return null;
+        });
+    }
+
     public Database getDatabase() {
         return database;
     }
 
+    // the oldest history is archived only once the rest of the database was saved without it
+    public void save(Consumer<Database> saver) {
+        SAVE.run(() -> {
+            database.prepareArchivedHistory();
+            try {
+                saver.accept(database);
+            } catch (RuntimeException e) {
+                database.abortArchivedHistory();
+                throw e;
+            }
+            database.commitArchivedHistory();
+        });
+    }
+
+    // gauges of the database size, read whenever a metrics snapshot is taken
+    public void registerGauges() {
+        Metrics.gauge("tasks", this::countTasks);
+        Metrics.gauge("tasks.dates", () -> database.getTasks().size());
+        Metrics.gauge("tasks.perDate.max", () -> database.getTasks().values().stream()
+                .mapToInt(List::size)
+                .max()
+                .orElse(0));
+        Metrics.gauge("tasks.perDate.average", () -> {
+            int dates = database.getTasks().size();
+            return dates == 0 ? 0 : (double) countTasks() / dates;
+        });
+        Metrics.gauge("history", () -> database.getHistoryPage(0, 0).getTotal());
+        Metrics.gauge("history.inMemory", () -> database.getTasksHistory().size());
+        Metrics.gauge("heap.usedBytes", TaskService::usedHeap);
+        Metrics.gauge("heap.bytesPerTask", () -> {
+            long tasksInMemory = countTasks() + database.getTasksHistory().size();
+            return tasksInMemory == 0 ? 0 : (double) usedHeap() / tasksInMemory;
+        });
+    }
+
+    private long countTasks() {
+        return database.getTasks().values().stream()
+                .mapToLong(List::size)
+                .sum();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     public Map<LocalDate, List<Task>> getTasks() {
         return database.getTasks();
     }
 
+    // one consistent version of all the data, which later changes leave as it is
+    public DatabaseSnapshot snapshot() {
+        return database.snapshot();
+    }
+
+    public TaskPage getTasksPage(int offset, int limit) {
+        return GET_TASKS_PAGE.time(() -> database.getTasksPage(offset, limit));
+    }
+
+    // tasks of one priority across all dates, in date order, read from the priority index
+    public TaskPage getTasksPage(Priority priority, int offset, int limit) {
+        return GET_TASKS_PAGE_BY_PRIORITY.time(() -> database.getTasksPage(priority, offset, limit));
+    }
+
+    // tasks of the range in date and priority order, paged like getTasksPage
+    public TaskPage getTasksPage(LocalDate from, LocalDate to, int offset, int limit) {
+        return GET_TASKS_PAGE_BETWEEN.time(() -> database.getTasksPage(from, to, offset, limit));
+    }
+
+    /*
+     * Tasks grouped by date from one date to another, both included, as a view of the database: finding the range
+     * takes O(log n) and nothing is copied, the days are read as the view is iterated.
+     */
+    public NavigableMap<LocalDate, List<Task>> getTasksBetween(LocalDate from, LocalDate to) {
+        return database.getTasksBetween(from, to);
+    }
+
+    // the tasks of the range one after another, a day is read only when the stream reaches it
+    public Stream<Task> streamTasksBetween(LocalDate from, LocalDate to) {
+        return database.getTasksBetween(from, to).values().stream().flatMap(List::stream);
+    }
+
+    // Monday to Sunday of the week containing the date
+    public NavigableMap<LocalDate, List<Task>> getWeekAgenda(LocalDate date) {
+        LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return database.getTasksBetween(monday, monday.plusDays(6));
+    }
+
+    public NavigableMap<LocalDate, List<Task>> getMonthAgenda(YearMonth month) {
+        return database.getTasksBetween(month.atDay(1), month.atEndOfMonth());
+    }
+
+    // days of the range without tasks are left out
+    public NavigableMap<LocalDate, Integer> countTasksPerDay(LocalDate from, LocalDate to) {
+        return database.countTasksPerDay(from, to);
+    }
+
+    // each change and its listeners run atomically, so a snapshot and the journal see all of it or nothing
     public void addTask(Task task) {
-        database.addTask(task);
-        database.setTasksCreated(database.getTasksCreated() + 1);
+        addTask(task, LocalDate.now());
+    }
+
+    // the statistics count the task as created on the date, e.g. that of a replayed change
+    public void addTask(Task task, LocalDate date) {
+        ADD_TASK.run(() -> runChange(() -> {
+            database.addTask(task);
+            // the lifetime counters mark the statistics changed for the next save, so they are updated last
+            database.getStatistics().recordCreated(task, date);
+            database.incrementTasksCreated();
+            listeners.forEach(listener -> listener.taskAdded(task, date));
+        }));
+    }
+
+    // bulk import, e.g. of a task dump from another system
+    public void addTasks(List<Task> tasks) {
+        ADD_TASKS.run(() -> runChange(() -> {
+            LocalDate today = LocalDate.now();
+            database.addTasks(tasks);
+            database.getStatistics().recordCreated(tasks, today);
+            database.addTasksCreated(tasks.size());
+            listeners.forEach(listener -> listener.tasksAdded(tasks, today));
+        }));
     }
 
     //adding tasks without increasing the number of created tasks
     public void addTaskSilently(Task task) {
-        database.addTask(task);
+        runChange(() -> {
+            database.addTask(task);
+            listeners.forEach(listener -> listener.taskAddedSilently(task));
+        });
     }
 
-    public void removeTask(Task task) {
-        LocalDate key = task.getDeadline();
-        database.removeTask(key, task);
+    // returns false if the task was already removed, e.g. by another client
+    public boolean removeTask(Task task) {
+        return REMOVE_TASK.time(() -> change(() -> {
+            if (!database.removeTask(task))
+                return false;
 
-        List<Task> tasks = findTasksByDate(key);
-        if (tasks != null && tasks.isEmpty())
-            database.removeTasksFromDate(key);
+            listeners.forEach(listener -> listener.taskRemoved(task));
+            return true;
+        }));
+    }
+
+    // an edit: the edited copy replaces the task in one step, false if the task was already removed
+    public boolean replaceTask(Task task, Task editedTask) {
+        return change(() -> {
+            if (!removeTask(task))
+                return false;
+
+            addTaskSilently(editedTask);
+            return true;
+        });
     }
 
     public List<Task> findTasksByDate(LocalDate key) {
         return database.getTasks().get(key);
     }
 
-    public void endTask(Task task) {
-        removeTask(task);
+    // only the thread that manages to remove the task moves it to the history, so a task is never ended or failed
+    // twice; returns the ended copy from the history, null if the task was already removed
+    public Task endTask(Task task) {
+        return endTask(task, LocalDate.now());
+    }
+
+    // the statistics count the task as completed on the date, e.g. that of a replayed change
+    public Task endTask(Task task, LocalDate date) {
+        return END_TASK.time(() -> change(() -> database.removeTask(task) ? completeTask(task, date) : null));
+    }
+
+    public boolean failTask(Task task) {
+        return failTask(task, LocalDate.now());
+    }
+
+    // the statistics count the task as failed on the date, e.g. that of a replayed change
+    public boolean failTask(Task task, LocalDate date) {
+        return FAIL_TASK.time(() -> change(() -> {
+            if (!database.removeTask(task))
+                return false;
+
+            // a copy goes to the history, the stored task may still be in a snapshot
+            Task failedTask = new Task(task);
+            failedTask.setStatus(Status.FAILED);
+            database.addToHistory(failedTask);
+            database.getStatistics().recordFailed(failedTask, date);
+            database.incrementTasksFailed();
+            listeners.forEach(listener -> listener.taskFailed(failedTask, date));
+            return true;
+        }));
+    }
 
-        task.setStatus(Status.DONE);
-        database.addToHistory(task);
-        database.setTasksCompleted(database.getTasksCompleted() + 1);
+    // returns the ended copy that went to the history
+    private Task completeTask(Task task, LocalDate date) {
+        Task endedTask = new Task(task);
+        endedTask.setStatus(Status.DONE);
+        database.addToHistory(endedTask);
+        database.getStatistics().recordCompleted(endedTask, date);
+        database.incrementTasksCompleted();
+        listeners.forEach(listener -> listener.taskEnded(endedTask, date));
+        return endedTask;
     }
 
-    public void failTask(Task task) {
-        removeTask(task);
+    // fails unfinished tasks whose deadline is before today, returns how many were failed
+    public int failOverdueTasks(LocalDate today) {
+        return FAIL_OVERDUE_TASKS.time(() -> {
+            int failedTasks = 0;
 
-        task.setStatus(Status.FAILED);
-        database.addToHistory(task);
-        database.setTasksFailed(database.getTasksFailed() + 1);
+            for (List<Task> tasks : database.getTasksBefore(today).values()) {
+                for (Task task : tasks) {
+                    if (failTask(task))
+                        failedTasks++;
+                }
+            }
+            return failedTasks;
+        });
+    }
+
+    // null if no stored task has the id
+    public Task getTaskById(long id) {
+        return database.getTask(id);
     }
 
     public Task getTaskByDateAndIndex(LocalDate date, int index) {
-        return database.getTasks().get(date).get(index);
+        List<Task> tasks = database.getTasks().get(date);
+        if (tasks == null)
+            throw new IndexOutOfBoundsException("No tasks for " + date);
+
+        return tasks.get(index);
     }
 
     public Collection<Task> findTaskByName(String taskName) {
-        Collection<List<Task>> tasks = database.getTasks().values();
-
-        return tasks.stream()
-                .flatMap(Collection::stream)
-                .filter(task -> task.getName().toLowerCase().contains(taskName.toLowerCase()))
-                .collect(Collectors.toList());
+        return FIND_TASK_BY_NAME.time(() -> database.findTasksByName(taskName));
     }
 
-    public Task endAndReturnFirstTask(List<Task> tasks) {
-        Task task;
-        task = tasks.removeFirst();
-        task.setStatus(Status.DONE);
-        database.addToHistory(task);
-        database.setTasksCompleted(database.getTasksCompleted() + 1);
+    public Collection<Task> findTaskByNameRanked(String query) {
+        return FIND_TASK_BY_NAME_RANKED.time(() -> database.findTasksRanked(query));
+    }
 
-        return task;
+    // null if there are no tasks for the date
+    public Task endAndReturnFirstTask(LocalDate date) {
+        return change(() -> {
+            Task task = database.removeFirstTask(date);
+            return task == null ? null : completeTask(task, LocalDate.now());
+        });
     }
 
     public String getStatistics() {
-        return "Statistics" + "\n" +
+        TaskStatistics statistics = database.getStatistics();
+        LocalDate today = LocalDate.now();
+
+        StringBuilder builder = new StringBuilder("Statistics" + "\n" +
                 "Number of all created tasks: " + database.getTasksCreated() + "\n" +
                 "Number of completed tasks: " + database.getTasksCompleted() + "\n" +
-                "Number of failed tasks: " + database.getTasksFailed() + "\n";
+                "Number of failed tasks: " + database.getTasksFailed() + "\n");
+
+        appendCounters(builder, "Today", statistics.getLastDays(today, 1));
+        appendCounters(builder, "Last 7 days", statistics.getLastDays(today, 7));
+        appendCounters(builder, "This week", statistics.getWeek(today));
+        appendCounters(builder, "Last " + TaskStatistics.DAYS_KEPT + " days",
+                statistics.getLastDays(today, TaskStatistics.DAYS_KEPT));
+        for (Priority priority : Priority.values()) {
+            appendCounters(builder, "Priority " + priority.name(), statistics.getPriority(priority));
+        }
+        return builder.toString();
+    }
+
+    private void appendCounters(StringBuilder builder, String label, TaskStatistics.Counters counters) {
+        builder.append(String.format("%-16s created %d, completed %d, failed %d, completion rate %.0f%%, " +
+                        "failure rate %.0f%%, average lead time %.1f days%n",
+                label + ":", counters.getCreated(), counters.getCompleted(), counters.getFailed(),
+                counters.getCompletionRate() * 100, counters.getFailureRate() * 100, counters.getAverageLeadDays()));
     }
 
     public void clearStatistics() {
-        database.clearStatistics();
+        runChange(() -> {
+            database.clearStatistics();
+            listeners.forEach(TaskListener::statisticsCleared);
+        });
+    }
+
+    public TaskPage getHistoryPage(int offset, int limit) {
+        return GET_HISTORY_PAGE.time(() -> database.getHistoryPage(offset, limit));
     }
 
-    public List<Task> getHistory() {
-        return database.getTasksHistory();
+    public TaskPage getHistoryPage(Status status, int offset, int limit) {
+        return GET_HISTORY_PAGE_BY_STATUS.time(() -> database.getHistoryPage(status, offset, limit));
     }
 
     public void clearHistory() {
-        database.clearHistory();
+        runChange(() -> {
+            database.clearHistory();
+            listeners.forEach(TaskListener::historyCleared);
+        });
     }
 }